@@ -0,0 +1,22 @@
+package com.appcrossings.config.spring.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks with the GC profiler attached
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+
+    Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class).build();
+
+    new Runner(options).run();
+  }
+
+}
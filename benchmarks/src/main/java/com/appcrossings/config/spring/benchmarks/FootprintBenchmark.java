@@ -0,0 +1,137 @@
+package com.appcrossings.config.spring.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.appcrossings.config.spring.ConfigSnapshot;
+
+/**
+ * Heap retained by two generations of 10k and 100k properties
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FootprintBenchmark {
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+
+    public long retainedBytes;
+
+    private long baseline;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      retainedBytes = 0;
+      baseline = usedAfterGc();
+    }
+
+    void measure(Object retained) {
+      retainedBytes = usedAfterGc() - baseline;
+      retained.hashCode();
+    }
+  }
+
+  @Param({"10000", "100000"})
+  public int keys;
+
+  private byte[] text;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    StringBuilder builder = new StringBuilder();
+
+    for (int i = 0; i < keys; i++) {
+      builder.append("tenant").append(i % 100).append(".db.pool.").append(i / 100)
+          .append(".maxSize=").append(i).append('\n');
+    }
+
+    text = builder.toString().getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  @Benchmark
+  public Object properties(Footprint footprint) throws IOException {
+
+    Properties[] generations = {parse(), parse()};
+    footprint.measure(generations);
+    return generations;
+  }
+
+  @Benchmark
+  public Object hashMap(Footprint footprint) throws IOException {
+
+    Object[] generations = {copy(parse()), copy(parse())};
+    footprint.measure(generations);
+    return generations;
+  }
+
+  @Benchmark
+  public Object snapshot(Footprint footprint) throws IOException {
+
+    ConfigSnapshot[] generations = {ConfigSnapshot.of(1, parse()), ConfigSnapshot.of(2, parse())};
+    footprint.measure(generations);
+    return generations;
+  }
+
+  private Properties parse() throws IOException {
+
+    Properties props = new Properties();
+    props.load(new ByteArrayInputStream(text));
+    return props;
+  }
+
+  private static Map<String, String> copy(Properties props) {
+
+    Map<String, String> copy = new HashMap<>(props.size() * 4 / 3 + 1);
+
+    for (String key : props.stringPropertyNames()) {
+      copy.put(key, props.getProperty(key));
+    }
+
+    return Collections.unmodifiableMap(copy);
+  }
+
+  private static long usedAfterGc() {
+
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+
+    // collect until the used heap stops shrinking
+    for (int i = 0; i < 10; i++) {
+
+      System.gc();
+      long now = runtime.totalMemory() - runtime.freeMemory();
+
+      if (now >= used)
+        break;
+
+      used = now;
+    }
+
+    return used;
+  }
+
+}
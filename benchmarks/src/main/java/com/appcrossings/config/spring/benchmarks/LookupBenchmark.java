@@ -0,0 +1,91 @@
+package com.appcrossings.config.spring.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.appcrossings.config.spring.ConfigSnapshot;
+import com.appcrossings.config.spring.ConfigrdPropertyPlaceholderConfigurer;
+
+/**
+ * Typed lookups with concurrent readers and a publishing writer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+  /**
+   * Alternates between two generations instead of going to a config source
+   */
+  static class AlternatingConfigurer extends ConfigrdPropertyPlaceholderConfigurer {
+
+    private final Properties[] generations = new Properties[2];
+
+    private long version;
+
+    AlternatingConfigurer() throws Exception {
+      super("classpath:/bench/hosts.properties");
+
+      for (int i = 0; i < generations.length; i++) {
+        generations[i] = new Properties();
+
+        for (int k = 0; k < 200; k++) {
+          generations[i].put("key." + k, String.valueOf(k));
+        }
+
+        generations[i].put("pool.size", String.valueOf(64 * (i + 1)));
+        generations[i].put("db.host", "db" + i + ".internal");
+      }
+    }
+
+    @Override
+    protected ConfigSnapshot load() {
+      version++;
+      return ConfigSnapshot.of(version, generations[(int) (version % 2)]);
+    }
+  }
+
+  private AlternatingConfigurer configurer;
+
+  @Setup
+  public void setup() throws Exception {
+    configurer = new AlternatingConfigurer();
+    configurer.reload();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Integer uncontended() {
+    return configurer.getProperty("pool.size", Integer.class);
+  }
+
+  @Benchmark
+  @Group("reload")
+  @GroupThreads(7)
+  public String readDuringReload() {
+    return configurer.getProperty("db.host", String.class);
+  }
+
+  @Benchmark
+  @Group("reload")
+  @GroupThreads(1)
+  public void reload() {
+    configurer.reload();
+  }
+
+}
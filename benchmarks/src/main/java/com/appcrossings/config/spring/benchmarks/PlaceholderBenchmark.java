@@ -0,0 +1,104 @@
+package com.appcrossings.config.spring.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.PropertyPlaceholderHelper;
+import com.appcrossings.config.spring.ConfigSnapshot;
+import com.appcrossings.config.spring.PlaceholderTemplate;
+
+/**
+ * Placeholder resolution, parsed per call versus precompiled
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaceholderBenchmark {
+
+  private PropertyPlaceholderHelper helper;
+
+  private ConfigSnapshot snapshot;
+
+  private PlaceholderTemplate simple;
+
+  private PlaceholderTemplate recursiveValue;
+
+  private PlaceholderTemplate defaultValue;
+
+  private PlaceholderTemplate nested;
+
+  @Setup
+  public void setup() {
+
+    helper = new PropertyPlaceholderHelper("${", "}", ":", false);
+
+    Properties props = new Properties();
+    props.put("property.1.name", "vendor");
+    props.put("property.3.name", "custom");
+    props.put("property.4.name", "${property.1.name}-${property.3.name}");
+    props.put("tenant", "acme");
+    props.put("region", "eu");
+    props.put("db.acme.eu.host", "db.acme.eu.internal");
+
+    snapshot = ConfigSnapshot.of(1, props);
+
+    PlaceholderTemplate.Compiler compiler = new PlaceholderTemplate.Compiler("${", "}", ":");
+    simple = compiler.compile("${property.1.name}");
+    recursiveValue = compiler.compile("${property.4.name}");
+    defaultValue = compiler.compile("${bonus.1.property:none}");
+    nested = compiler.compile("${db.${tenant}.${region}.host}");
+  }
+
+  @Benchmark
+  public String helperSimple() {
+    return helper.replacePlaceholders("${property.1.name}", snapshot::getProperty);
+  }
+
+  @Benchmark
+  public String helperRecursiveValue() {
+    return helper.replacePlaceholders("${property.4.name}", snapshot::getProperty);
+  }
+
+  @Benchmark
+  public String helperDefaultValue() {
+    return helper.replacePlaceholders("${bonus.1.property:none}", snapshot::getProperty);
+  }
+
+  @Benchmark
+  public String helperNested() {
+    return helper.replacePlaceholders("${db.${tenant}.${region}.host}", snapshot::getProperty);
+  }
+
+  @Benchmark
+  public String templateSimple() {
+    return simple.resolve(snapshot::getProperty);
+  }
+
+  @Benchmark
+  public String templateRecursiveValue() {
+    return recursiveValue.resolve(snapshot::getProperty);
+  }
+
+  @Benchmark
+  public String templateDefaultValue() {
+    return defaultValue.resolve(snapshot::getProperty);
+  }
+
+  @Benchmark
+  public String templateNested() {
+    return nested.resolve(snapshot::getProperty);
+  }
+
+}
@@ -0,0 +1,124 @@
+package com.appcrossings.config.spring.benchmarks;
+
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import com.appcrossings.config.spring.ConfigSnapshot;
+import com.appcrossings.config.spring.ValueInjector;
+
+/**
+ * Re-injection of {@code @Value} members on reload
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReloadBenchmark {
+
+  public static class Handler {
+
+    @Value("${feature.enabled}")
+    private boolean enabled;
+
+    @Value("${handler.${tenant}.timeout:1000}")
+    private long timeout;
+
+    @Value("${db.host}:${db.port}")
+    private String url;
+
+    private String tenant;
+
+    @Value("${tenant}")
+    public void setTenant(String tenant) {
+      this.tenant = tenant;
+    }
+  }
+
+  @Param({"100", "1000", "10000"})
+  public int beans;
+
+  @Param({"0", "4"})
+  public int parallelism;
+
+  private GenericApplicationContext context;
+
+  private ValueInjector injector;
+
+  private final ConfigSnapshot[] snapshots = new ConfigSnapshot[2];
+
+  private final Set<String> changed = Collections.singleton("feature.enabled");
+
+  private int version;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    context = new GenericApplicationContext();
+    injector = new ValueInjector(context.getBeanFactory(), "${", "}");
+    injector.setParallelism(parallelism);
+    context.getBeanFactory().addBeanPostProcessor(injector);
+
+    for (int i = 0; i < beans; i++) {
+      context.registerBeanDefinition("handler" + i, new RootBeanDefinition(Handler.class));
+    }
+
+    context.refresh();
+
+    for (int i = 0; i < snapshots.length; i++) {
+
+      Properties props = new Properties();
+      props.put("feature.enabled", String.valueOf(i == 0));
+      props.put("tenant", "acme");
+      props.put("handler.acme.timeout", String.valueOf(2000 + i));
+      props.put("db.host", "db.internal");
+      props.put("db.port", "5432");
+
+      snapshots[i] = ConfigSnapshot.of(i + 1, props);
+    }
+
+    injector.reloadBeans(snapshots[0]);
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    injector.shutdown();
+    context.close();
+  }
+
+  @Benchmark
+  public boolean unchanged() {
+    return injector.reloadBeans(snapshots[version & 1], Collections.emptySet());
+  }
+
+  @Benchmark
+  public boolean oneKeyAllBeans() {
+    version++;
+    return injector.reloadBeans(snapshots[version & 1], changed);
+  }
+
+  @Benchmark
+  public boolean full() {
+    version++;
+    return injector.reloadBeans(snapshots[version & 1]);
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.appcrossings.config.spring.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.appcrossings.config.ConfigClient;
+import com.appcrossings.config.ConfigClient.Method;
+import com.appcrossings.config.spring.ConfigrdPropertyPlaceholderConfigurer;
+
+/**
+ * Typed lookups, cached per snapshot versus through the client
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypedLookupBenchmark {
+
+  private ConfigClient client;
+
+  private ConfigrdPropertyPlaceholderConfigurer configurer;
+
+  @Setup
+  public void setup() throws Exception {
+
+    client = new ConfigClient("classpath:/bench/hosts.properties", Method.HOST_FILE);
+    client.init();
+
+    configurer = new ConfigrdPropertyPlaceholderConfigurer("classpath:/bench/hosts.properties");
+    configurer.reload();
+  }
+
+  @Benchmark
+  public Integer clientInteger() {
+    return client.getProperty("pool.size", Integer.class);
+  }
+
+  @Benchmark
+  public Integer cachedInteger() {
+    return configurer.getProperty("pool.size", Integer.class);
+  }
+
+  @Benchmark
+  public Boolean clientBoolean() {
+    return client.getProperty("pool.enabled", Boolean.class);
+  }
+
+  @Benchmark
+  public Boolean cachedBoolean() {
+    return configurer.getProperty("pool.enabled", Boolean.class);
+  }
+
+  @Benchmark
+  public Long clientDefault() {
+    return client.getProperty("pool.missing", Long.class, 10L);
+  }
+
+  @Benchmark
+  public Long cachedDefault() {
+    return configurer.getProperty("pool.missing", Long.class, 10L);
+  }
+
+}
@@ -0,0 +1,124 @@
+package com.appcrossings.config.spring;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published once per applied reload with the keys whose values changed
+ */
+public class ConfigChangeEvent extends ApplicationEvent {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Set<String> keys;
+
+  private final transient ConfigSnapshot previous;
+
+  private final transient ConfigSnapshot snapshot;
+
+  ConfigChangeEvent(Object source, ConfigSnapshot previous, ConfigSnapshot snapshot,
+      Set<String> keys) {
+    super(source);
+    this.previous = previous;
+    this.snapshot = snapshot;
+    this.keys = Collections.unmodifiableSet(keys);
+  }
+
+  /**
+   * Whether a key is the given key, or under it when used as a prefix: {@code db} and {@code db.}
+   * both match {@code db.host}. An empty key or prefix matches every key.
+   * 
+   * @param key
+   * @param keyOrPrefix
+   * @return
+   */
+  static boolean matches(String key, String keyOrPrefix) {
+
+    if (keyOrPrefix == null || keyOrPrefix.isEmpty() || key.equals(keyOrPrefix))
+      return true;
+
+    if (!key.startsWith(keyOrPrefix))
+      return false;
+
+    char next = key.charAt(keyOrPrefix.length());
+    return keyOrPrefix.endsWith(".") || next == '.' || next == '[';
+  }
+
+  /**
+   * @return the keys added, changed or removed, not including those which were reverted when
+   *         events were coalesced
+   */
+  public Set<String> getKeys() {
+    return keys;
+  }
+
+  /**
+   * @param key
+   * @return the value before the change, null if the key was added
+   */
+  public String getOldValue(String key) {
+    return previous.getProperty(key);
+  }
+
+  /**
+   * @param key
+   * @return the value after the change, null if the key was removed
+   */
+  public String getNewValue(String key) {
+    return snapshot.getProperty(key);
+  }
+
+  public long getPreviousVersion() {
+    return previous.getVersion();
+  }
+
+  public long getVersion() {
+    return snapshot.getVersion();
+  }
+
+  /**
+   * @param keyOrPrefix
+   * @return an event with only the matching keys, null if none match
+   */
+  ConfigChangeEvent select(String keyOrPrefix) {
+
+    Set<String> selected = new LinkedHashSet<>();
+
+    for (String key : keys) {
+      if (matches(key, keyOrPrefix))
+        selected.add(key);
+    }
+
+    if (selected.isEmpty())
+      return null;
+
+    return selected.size() == keys.size() ? this
+        : new ConfigChangeEvent(getSource(), previous, snapshot, selected);
+  }
+
+  /**
+   * Merges a later event into this one, from this event's old values to the later new values
+   *
+   * @param later
+   * @return the merged event, null if every key was changed back
+   */
+  ConfigChangeEvent coalesce(ConfigChangeEvent later) {
+
+    Set<String> merged = new LinkedHashSet<>(keys);
+    merged.addAll(later.keys);
+    merged.removeIf(key -> Objects.equals(previous.getRawProperty(key),
+        later.snapshot.getRawProperty(key)));
+
+    return merged.isEmpty() ? null
+        : new ConfigChangeEvent(getSource(), previous, later.snapshot, merged);
+  }
+
+  @Override
+  public String toString() {
+    return "ConfigChangeEvent [version=" + getVersion() + ", keys=" + keys + "]";
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.appcrossings.config.spring;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Reactive subscriptions to the changes applied by a configurer
+ */
+public final class ConfigChanges {
+
+  private static final class Subscriber implements Consumer<ConfigChangeEvent> {
+
+    private final String keyOrPrefix;
+
+    private final AtomicReference<ConfigChangeEvent> pending = new AtomicReference<>();
+
+    private final FluxSink<ConfigChangeEvent> sink;
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private Subscriber(FluxSink<ConfigChangeEvent> sink, String keyOrPrefix) {
+      this.sink = sink;
+      this.keyOrPrefix = keyOrPrefix;
+    }
+
+    @Override
+    public void accept(ConfigChangeEvent event) {
+
+      ConfigChangeEvent selected = event.select(keyOrPrefix);
+
+      if (selected == null)
+        return;
+
+      pending.accumulateAndGet(selected,
+          (previous, later) -> previous == null ? later : previous.coalesce(later));
+      drain();
+    }
+
+    private void drain() {
+
+      if (wip.getAndIncrement() != 0)
+        return;
+
+      int missed = 1;
+
+      do {
+
+        while (!sink.isCancelled() && sink.requestedFromDownstream() > 0) {
+
+          ConfigChangeEvent next = pending.getAndSet(null);
+
+          if (next == null)
+            break;
+
+          sink.next(next);
+        }
+
+        missed = wip.addAndGet(-missed);
+
+      } while (missed != 0);
+    }
+  }
+
+  private ConfigChanges() {}
+
+  /**
+   * @param configurer
+   * @param keyOrPrefix a key, or a prefix such as {@code db} for every key under {@code db.}, empty
+   *        for every key
+   * @return a hot stream of the matching changes applied after subscription
+   */
+  public static Flux<ConfigChangeEvent> of(ConfigrdPropertyPlaceholderConfigurer configurer,
+      String keyOrPrefix) {
+
+    return Flux.create(sink -> {
+
+      Subscriber subscriber = new Subscriber(sink, keyOrPrefix);
+      configurer.addChangeListener(subscriber);
+
+      sink.onRequest(n -> subscriber.drain());
+      sink.onDispose(() -> configurer.removeChangeListener(subscriber));
+    });
+  }
+
+}
@@ -0,0 +1,153 @@
+package com.appcrossings.config.spring;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Watches local config directories for changes
+ */
+final class ConfigDirectoryWatcher implements Closeable {
+
+  private static final Log logger = LogFactory.getLog(ConfigDirectoryWatcher.class);
+
+  private final Runnable listener;
+
+  private final Thread thread;
+
+  private final WatchService watchService;
+
+  ConfigDirectoryWatcher(Collection<Path> directories, Runnable listener) throws IOException {
+
+    this.listener = listener;
+    this.watchService = FileSystems.getDefault().newWatchService();
+
+    for (Path dir : directories) {
+      dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+
+    this.thread = new Thread(this::watch, "configrd-watch");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * The local directories the config is loaded from: the directory of the hosts file itself, the
+   * directory it maps the host, or else the environment, or else {@code *} to along with its parents
+   * up to the hosts file's directory, which the config cascades through, and the directory of each
+   * profile. Remote locations are ignored.
+   * 
+   * @param hostsPath
+   * @param hostName
+   * @param environmentName
+   * @param profiles
+   * @param loader
+   * @return
+   * @throws IOException
+   */
+  static Set<Path> resolveDirectories(String hostsPath, String hostName, String environmentName,
+      String[] profiles, ResourceLoader loader) throws IOException {
+
+    Set<Path> dirs = new LinkedHashSet<>();
+    Resource hosts = loader.getResource(hostsPath);
+
+    if (!hosts.exists() || !hosts.isFile())
+      return dirs;
+
+    Path root = hosts.getFile().getParentFile().toPath().toAbsolutePath().normalize();
+    dirs.add(root);
+
+    Properties mappings = new Properties();
+
+    try (InputStream in = hosts.getInputStream()) {
+      mappings.load(in);
+    }
+
+    String location = null;
+
+    for (String name : new String[] {hostName, environmentName, "*"}) {
+      if (name != null && location == null)
+        location = mappings.getProperty(name);
+    }
+
+    Path dir = directory(location, loader);
+
+    if (dir != null)
+      dirs.add(dir);
+
+    // the cascade from the mapped directory up to the hosts file's
+    while (dir != null && dir.startsWith(root)) {
+      dirs.add(dir);
+      dir = dir.getParent();
+    }
+
+    for (String profile : profiles) {
+
+      Path profileDir = directory(mappings.getProperty(profile), loader);
+
+      if (profileDir != null)
+        dirs.add(profileDir);
+    }
+
+    return dirs;
+  }
+
+  private static Path directory(String location, ResourceLoader loader) throws IOException {
+
+    if (location == null)
+      return null;
+
+    Resource resource = loader.getResource(location.trim());
+
+    if (!resource.exists() || !resource.isFile())
+      return null;
+
+    File file = resource.getFile();
+    return (file.isDirectory() ? file : file.getParentFile()).toPath().toAbsolutePath().normalize();
+  }
+
+  @Override
+  public void close() throws IOException {
+    thread.interrupt();
+    watchService.close();
+  }
+
+  private void watch() {
+
+    try {
+
+      while (!Thread.currentThread().isInterrupted()) {
+
+        WatchKey key = watchService.take();
+        boolean changed = !key.pollEvents().isEmpty();
+        key.reset();
+
+        if (changed)
+          listener.run();
+      }
+
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // closed
+    } catch (RuntimeException e) {
+      logger.error("Config directory watch stopped", e);
+    }
+  }
+
+}
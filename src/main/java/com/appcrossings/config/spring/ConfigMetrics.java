@@ -0,0 +1,34 @@
+package com.appcrossings.config.spring;
+
+/**
+ * Receives timings and counts from the configurer
+ */
+public interface ConfigMetrics {
+
+  ConfigMetrics NONE = new ConfigMetrics() {};
+
+  /**
+   * A config layer was fetched and parsed
+   * 
+   * @param layer
+   * @param nanos
+   */
+  default void layerFetched(String layer, long nanos) {}
+
+  /**
+   * A reload completed
+   * 
+   * @param result
+   * @param nanos
+   */
+  default void reloaded(ReloadResult result, long nanos) {}
+
+  /**
+   * A reload threw before it could complete
+   * 
+   * @param e
+   * @param nanos
+   */
+  default void reloadFailed(Exception e, long nanos) {}
+
+}
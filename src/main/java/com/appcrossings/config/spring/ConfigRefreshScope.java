@@ -0,0 +1,207 @@
+package com.appcrossings.config.spring;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.Scope;
+
+/**
+ * Caches beans until a reload changes one of the keys they read while being built
+ */
+public class ConfigRefreshScope implements Scope {
+
+  private static final class Entry {
+
+    private volatile Runnable destruction;
+
+    private final Object instance;
+
+    private final Set<String> keys;
+
+    private Entry(Object instance, Set<String> keys) {
+      this.instance = instance;
+      this.keys = keys;
+    }
+  }
+
+  public static final String NAME = "refresh";
+
+  private static final Log logger = LogFactory.getLog(ConfigRefreshScope.class);
+
+  private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Runnable> callbacks = new ConcurrentHashMap<>();
+
+  private ScheduledExecutorService destroyer;
+
+  private long drainTimeout = 1000;
+
+  private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+  @Override
+  public Object get(String name, ObjectFactory<?> objectFactory) {
+
+    Entry entry = cache.get(name);
+
+    if (entry != null)
+      return entry.instance;
+
+    synchronized (locks.computeIfAbsent(name, n -> new Object())) {
+
+      entry = cache.get(name);
+
+      if (entry != null)
+        return entry.instance;
+
+      Set<String> keys = new HashSet<>();
+      Set<String> outer = ConfigrdPropertySource.track(keys);
+
+      Object instance;
+
+      try {
+        instance = objectFactory.getObject();
+      } finally {
+        ConfigrdPropertySource.track(outer);
+      }
+
+      entry = new Entry(instance, Collections.unmodifiableSet(keys));
+      entry.destruction = callbacks.remove(name);
+      cache.put(name, entry);
+
+      logger.debug("Built " + name + " in refresh scope, depends on " + keys);
+      return instance;
+    }
+  }
+
+  @Override
+  public Object remove(String name) {
+
+    callbacks.remove(name);
+    Entry entry = cache.remove(name);
+    return entry == null ? null : entry.instance;
+  }
+
+  @Override
+  public void registerDestructionCallback(String name, Runnable callback) {
+
+    Entry entry = cache.get(name);
+
+    if (entry != null)
+      entry.destruction = callback;
+    else
+      callbacks.put(name, callback);
+  }
+
+  @Override
+  public Object resolveContextualObject(String key) {
+    return null;
+  }
+
+  @Override
+  public String getConversationId() {
+    return null;
+  }
+
+  /**
+   * Evicts the beans which read any of the changed keys while being built
+   * 
+   * @param changedKeys
+   * @return the number of beans evicted
+   */
+  public int refresh(Set<String> changedKeys) {
+
+    int evicted = 0;
+
+    for (Map.Entry<String, Entry> e : cache.entrySet()) {
+
+      if (!Collections.disjoint(e.getValue().keys, changedKeys)
+          && cache.remove(e.getKey(), e.getValue())) {
+
+        evicted++;
+        destroyLater(e.getKey(), e.getValue());
+      }
+    }
+
+    if (evicted > 0)
+      logger.info("Evicted " + evicted + " bean(s) from refresh scope");
+
+    return evicted;
+  }
+
+  /**
+   * Destroys every cached bean, including those still draining
+   */
+  public synchronized void destroy() {
+
+    if (destroyer != null) {
+
+      for (Runnable pending : destroyer.shutdownNow()) {
+        pending.run();
+      }
+
+      destroyer = null;
+    }
+
+    for (String name : cache.keySet()) {
+
+      Entry entry = cache.remove(name);
+
+      if (entry != null)
+        destroy(name, entry);
+    }
+  }
+
+  /**
+   * How long in milliseconds an evicted bean is kept alive for calls in progress before it is
+   * destroyed. Defaults to 1000.
+   * 
+   * @param drainTimeout
+   */
+  public void setDrainTimeout(long drainTimeout) {
+    this.drainTimeout = drainTimeout;
+  }
+
+  int size() {
+    return cache.size();
+  }
+
+  private synchronized void destroyLater(String name, Entry entry) {
+
+    if (entry.destruction == null)
+      return;
+
+    if (destroyer == null) {
+      destroyer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "configrd-refresh-scope");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    destroyer.schedule(() -> destroy(name, entry), drainTimeout, TimeUnit.MILLISECONDS);
+  }
+
+  private void destroy(String name, Entry entry) {
+
+    Runnable destruction = entry.destruction;
+
+    if (destruction == null)
+      return;
+
+    try {
+      destruction.run();
+    } catch (RuntimeException e) {
+      logger.warn("Error destroying " + name + " from refresh scope", e);
+    }
+  }
+
+}
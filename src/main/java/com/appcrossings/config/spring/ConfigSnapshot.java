@@ -0,0 +1,262 @@
+package com.appcrossings.config.spring;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+import org.springframework.core.convert.ConversionService;
+
+/**
+ * An immutable generation of loaded properties
+ */
+public final class ConfigSnapshot {
+
+  public static final ConfigSnapshot EMPTY = new ConfigSnapshot(0, 0, PropertyStore.EMPTY, null);
+
+  private static final Object NULL = new Object();
+
+  private final PropertyDecryptor decryptor;
+
+  private final long fingerprint;
+
+  private volatile String[] names;
+
+  private final PropertyStore properties;
+
+  private final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> typed =
+      new ConcurrentHashMap<>();
+
+  private final long version;
+
+  private ConfigSnapshot(long version, long fingerprint, PropertyStore properties,
+      PropertyDecryptor decryptor) {
+    this.version = version;
+    this.fingerprint = fingerprint;
+    this.properties = properties;
+    this.decryptor = decryptor;
+  }
+
+  public static ConfigSnapshot of(long version, Properties props) {
+    return of(version, props, null);
+  }
+
+  static ConfigSnapshot of(long version, Properties props, PropertyDecryptor decryptor) {
+
+    PropertyStore store = PropertyStore.of(props);
+    long fingerprint = store.size();
+
+    for (int i = 0; i < store.size(); i++) {
+      fingerprint += mix(store.keyAt(i), store.valueAt(i));
+    }
+
+    return new ConfigSnapshot(version, fingerprint, store, decryptor);
+  }
+
+  /**
+   * @param decryptor
+   * @return a snapshot of the same values which decrypts them through the given decryptor
+   */
+  ConfigSnapshot decryptedBy(PropertyDecryptor decryptor) {
+    return derive(version, decryptor);
+  }
+
+  /**
+   * @param version
+   * @param decryptor
+   * @return a snapshot of the same values, sharing their storage, with another version and
+   *         decryptor
+   */
+  ConfigSnapshot derive(long version, PropertyDecryptor decryptor) {
+    return new ConfigSnapshot(version, fingerprint, properties, decryptor);
+  }
+
+  /**
+   * An order independent 64 bit hash of the properties' content, used to detect an unchanged
+   * source without diffing it
+   * 
+   * @param props
+   * @return
+   */
+  public static long fingerprint(Properties props) {
+
+    long hash = 0;
+
+    synchronized (props) {
+      for (Map.Entry<Object, Object> e : props.entrySet()) {
+        if (e.getKey() instanceof String && e.getValue() instanceof String)
+          hash += 1 + mix((String) e.getKey(), (String) e.getValue());
+      }
+    }
+
+    return hash;
+  }
+
+  private static long mix(String key, String value) {
+
+    long h = key.hashCode() * 0x9E3779B97F4A7C15L + value.hashCode();
+    h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+    h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return h ^ (h >>> 33);
+  }
+
+  /**
+   * Keys which were added, removed or whose value changed relative to the previous snapshot
+   * 
+   * @param previous
+   * @return
+   */
+  public Set<String> changedKeys(ConfigSnapshot previous) {
+
+    Set<String> changed = new HashSet<>();
+    PropertyStore before = previous.properties;
+
+    int i = 0;
+    int j = 0;
+
+    // both stores are sorted by key, so one merge pass finds every difference
+    while (i < properties.size() || j < before.size()) {
+
+      int order = i == properties.size() ? 1
+          : j == before.size() ? -1 : properties.keyAt(i).compareTo(before.keyAt(j));
+
+      if (order < 0) {
+        changed.add(properties.keyAt(i++));
+      } else if (order > 0) {
+        changed.add(before.keyAt(j++));
+      } else {
+
+        if (!properties.valueAt(i).equals(before.valueAt(j)))
+          changed.add(properties.keyAt(i));
+
+        i++;
+        j++;
+      }
+    }
+
+    return changed;
+  }
+
+  public boolean containsProperty(String key) {
+    return properties.containsKey(key);
+  }
+
+  public long getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * @param key
+   * @return the value, decrypted if it is encrypted
+   */
+  public String getProperty(String key) {
+
+    String value = properties.get(key);
+    return decryptor == null ? value : decryptor.decrypt(value);
+  }
+
+  /**
+   * @param key
+   * @return the value as loaded, encrypted values stay encrypted
+   */
+  public String getRawProperty(String key) {
+    return properties.get(key);
+  }
+
+  /**
+   * Converted value of the property, cached for the lifetime of this snapshot
+   * 
+   * @param key
+   * @param type
+   * @param conversionService
+   * @return the converted value or null if the property doesn't exist
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getProperty(String key, Class<T> type, ConversionService conversionService) {
+
+    ConcurrentMap<String, Object> values = typed.get(type);
+
+    if (values == null)
+      values = typed.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+
+    Object value = values.get(key);
+
+    if (value == null) {
+
+      String raw = getProperty(key);
+      value = raw == null ? null : conversionService.convert(raw, type);
+      values.putIfAbsent(key, value == null ? NULL : value);
+
+    } else if (value == NULL) {
+      value = null;
+    }
+
+    return (T) value;
+  }
+
+  /**
+   * @param prefix such as {@code db.pool.}
+   * @return the properties whose keys start with the prefix in ascending key order, values
+   *         decrypted on access
+   */
+  public Map<String, String> getProperties(String prefix) {
+    return properties.withPrefix(prefix, decryptor == null ? UnaryOperator.identity()
+        : decryptor::decrypt);
+  }
+
+  /**
+   * @return the property names in ascending order
+   */
+  public Set<String> getPropertyNames() {
+    return properties.keySet();
+  }
+
+  /**
+   * @return the property names as an array, built once per snapshot
+   */
+  String[] getPropertyNameArray() {
+
+    String[] names = this.names;
+
+    if (names == null)
+      this.names = names = properties.keys();
+
+    return names;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public int size() {
+    return properties.size();
+  }
+
+  /**
+   * @return a new, mutable copy of this snapshot's properties, with encrypted values decrypted
+   */
+  public Properties toProperties() {
+
+    Properties props = new Properties();
+
+    for (int i = 0; i < properties.size(); i++) {
+      String value = properties.valueAt(i);
+      props.put(properties.keyAt(i), decryptor == null ? value : decryptor.decrypt(value));
+    }
+
+    return props;
+  }
+
+  Collection<String> values() {
+    return properties.values();
+  }
+
+  @Override
+  public String toString() {
+    return "ConfigSnapshot [version=" + version + ", size=" + properties.size() + "]";
+  }
+
+}
@@ -0,0 +1,42 @@
+package com.appcrossings.config.spring;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnEnabledEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Registers the metrics binder and the actuator endpoint
+ */
+@Configuration
+@ConditionalOnBean(ConfigrdPropertyPlaceholderConfigurer.class)
+public class ConfigrdAutoConfiguration {
+
+  @Configuration
+  @ConditionalOnClass(MeterBinder.class)
+  static class MetricsConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ConfigrdMetrics configrdMetrics(ConfigrdPropertyPlaceholderConfigurer configurer) {
+      return new ConfigrdMetrics(configurer);
+    }
+  }
+
+  @Configuration
+  @ConditionalOnClass(Endpoint.class)
+  static class EndpointConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnEnabledEndpoint
+    public ConfigrdEndpoint configrdEndpoint(ConfigrdPropertyPlaceholderConfigurer configurer) {
+      return new ConfigrdEndpoint(configurer);
+    }
+  }
+
+}
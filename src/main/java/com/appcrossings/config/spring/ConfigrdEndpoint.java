@@ -0,0 +1,67 @@
+package com.appcrossings.config.spring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.boot.actuate.endpoint.Sanitizer;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+/**
+ * Actuator endpoint listing the active config snapshot
+ */
+@Endpoint(id = "appconfig")
+public class ConfigrdEndpoint {
+
+  private final ConfigrdPropertyPlaceholderConfigurer configurer;
+
+  private final Sanitizer sanitizer = new Sanitizer();
+
+  public ConfigrdEndpoint(ConfigrdPropertyPlaceholderConfigurer configurer) {
+    this.configurer = configurer;
+  }
+
+  @ReadOperation
+  public Map<String, Object> snapshot() {
+
+    ConfigSnapshot snapshot = configurer.getSnapshot();
+
+    Map<String, Object> properties = new TreeMap<>();
+
+    for (String key : snapshot.getPropertyNames()) {
+      properties.put(key, sanitize(key, snapshot.getRawProperty(key)));
+    }
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("version", snapshot.getVersion());
+    body.put("fingerprint", Long.toHexString(snapshot.getFingerprint()));
+    body.put("size", snapshot.size());
+    body.put("properties", properties);
+    return body;
+  }
+
+  @ReadOperation
+  public Map<String, Object> property(@Selector String key) {
+
+    ConfigSnapshot snapshot = configurer.getSnapshot();
+
+    if (!snapshot.containsProperty(key))
+      return null;
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("version", snapshot.getVersion());
+    body.put("key", key);
+    body.put("value", sanitize(key, snapshot.getRawProperty(key)));
+    return body;
+  }
+
+  private Object sanitize(String key, String value) {
+
+    if (PropertyDecryptor.isEncrypted(value))
+      return "******";
+
+    return sanitizer.sanitize(key, value);
+  }
+
+}
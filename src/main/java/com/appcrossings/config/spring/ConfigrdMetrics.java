@@ -0,0 +1,91 @@
+package com.appcrossings.config.spring;
+
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes the configurer's metrics to Micrometer
+ */
+public class ConfigrdMetrics implements MeterBinder, ConfigMetrics {
+
+  private DistributionSummary changedKeys;
+
+  private final ConfigrdPropertyPlaceholderConfigurer configurer;
+
+  private DistributionSummary injected;
+
+  private volatile MeterRegistry registry;
+
+  public ConfigrdMetrics(ConfigrdPropertyPlaceholderConfigurer configurer) {
+    this.configurer = configurer;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+
+    Gauge.builder("configrd.snapshot.version", configurer, c -> c.getVersion())
+        .description("Version of the active config snapshot").register(registry);
+
+    FunctionCounter
+        .builder("configrd.injection.failures", configurer, c -> c.getInjectionFailureCount())
+        .description("Values which failed to resolve or convert on reload").register(registry);
+
+    FunctionCounter.builder("configrd.lookups", configurer, c -> c.getLookupCount())
+        .description("Calls to getProperty").register(registry);
+
+    changedKeys = DistributionSummary.builder("configrd.reload.changed.keys")
+        .description("Keys changed per reload").register(registry);
+
+    injected = DistributionSummary.builder("configrd.reload.injected")
+        .description("Injection points written per reload").register(registry);
+
+    this.registry = registry;
+    configurer.setMetrics(this);
+  }
+
+  @Override
+  public void layerFetched(String layer, long nanos) {
+
+    MeterRegistry registry = this.registry;
+
+    if (registry != null)
+      Timer.builder("configrd.layer.fetch").tag("layer", layer).register(registry).record(nanos,
+          TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void reloaded(ReloadResult result, long nanos) {
+
+    MeterRegistry registry = this.registry;
+
+    if (registry == null)
+      return;
+
+    timer(registry, result.getStatus().name()).record(nanos, TimeUnit.NANOSECONDS);
+
+    if (result.getStatus() != ReloadResult.Status.UNCHANGED) {
+      changedKeys.record(result.getChangedKeys());
+      injected.record(result.getInjected());
+    }
+  }
+
+  @Override
+  public void reloadFailed(Exception e, long nanos) {
+
+    MeterRegistry registry = this.registry;
+
+    if (registry != null)
+      timer(registry, "FAILED").record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer timer(MeterRegistry registry, String status) {
+    return Timer.builder("configrd.reload").tag("status", status).publishPercentileHistogram()
+        .register(registry);
+  }
+
+}
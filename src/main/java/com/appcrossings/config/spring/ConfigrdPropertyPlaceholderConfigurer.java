@@ -1,19 +1,55 @@
 package com.appcrossings.config.spring;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.TimerTask;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
 import org.jasypt.encryption.pbe.StandardPBEStringEncryptor;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.EnvironmentAware;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.PropertySources;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.ClassUtils;
 import com.appcrossings.config.Config;
 import com.appcrossings.config.ConfigClient;
 import com.appcrossings.config.ConfigClient.Method;
-import com.appcrossings.config.Environment;
+import com.appcrossings.config.spring.LayeredConfigLoader.Layer;
+import com.appcrossings.config.spring.ValueInjector.Batch;
 
 
 /**
@@ -22,26 +58,102 @@ import com.appcrossings.config.Environment;
  *
  */
 public class ConfigrdPropertyPlaceholderConfigurer extends PropertySourcesPlaceholderConfigurer
-    implements Config, EnvironmentAware, ApplicationContextAware {
+    implements Config, ApplicationEventPublisherAware, DisposableBean, EnvironmentAware,
+    SmartLifecycle {
 
-  private class ReloadTask extends TimerTask {
+  private static final Properties NO_PROPERTIES = new Properties();
 
-    @Override
-    public void run() {
-      try {
+  private static final String PROFILE_FILE = "default.properties";
 
-        reload();
+  private static final boolean BOOT_PRESENT =
+      ClassUtils.isPresent("org.springframework.boot.context.properties.bind.Binder",
+          ConfigrdPropertyPlaceholderConfigurer.class.getClassLoader());
 
-      } catch (Exception e) {
-        logger.error("Error refreshing configs", e);
-      }
-    }
-  }
+  private final List<Consumer<ConfigChangeEvent>> changeListeners = new CopyOnWriteArrayList<>();
+
+  private final PropertyDecryptor decryptor = new PropertyDecryptor();
+
+  private Environment environment;
+
+  private String environmentName;
+
+  private ApplicationEventPublisher eventPublisher;
+
+  private boolean exposeToEnvironment = true;
+
+  private String fileEncoding;
+
+  private String hostName;
+
+  private final Map<Resource, HttpPropertiesSource> httpSources = new ConcurrentHashMap<>();
+
+  private ConfigurationPropertiesRebinder rebinder;
+
+  private boolean ignoreResourceNotFound;
 
   private ValueInjector injector;
 
+  private int injectionParallelism;
+
+  private boolean proxyConfigurationProperties;
+
+  private final LayeredConfigLoader loader = new LayeredConfigLoader();
+
+  private Resource[] locations = new Resource[0];
+
+  private final LongAdder lookups = new LongAdder();
+
+  private int maxRefreshBackoff = 300;
+
+  private boolean customPropertySources;
+
+  private volatile ConfigMetrics metrics = ConfigMetrics.NONE;
+
+  private final String path;
+
+  private int refresh;
+
+  private int refreshJitter;
+
+  private final ConfigRefreshScope refreshScope = new ConfigRefreshScope();
+
+  private CompletableFuture<ConfigSnapshot> pending;
+
+  private String[] profiles = new String[0];
+
+  private boolean profilesSet;
+
+  private final DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+
+  private volatile boolean running;
+
+  private SharedConfigCache.Entry shared;
+
+  private boolean sharedCache;
+
+  private RefreshScheduler scheduler;
+
+  private SnapshotFile snapshotFile;
+
+  private long startupTimeout;
+
+  private boolean watch;
+
+  private long watchDebounce = 500;
+
+  private ConfigDirectoryWatcher watcher;
+
   private final ConfigClient client;
 
+  private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+  private final AtomicReference<ConfigSnapshot> snapshot =
+      new AtomicReference<>(ConfigSnapshot.EMPTY);
+
+  private Properties unchangedProps;
+
+  private ConfigSnapshot unchangedSnapshot;
+
   /**
    * 
    * @param path The path of the hosts.properties file
@@ -50,43 +162,230 @@ public class ConfigrdPropertyPlaceholderConfigurer extends PropertySourcesPlaceh
   public ConfigrdPropertyPlaceholderConfigurer(String path) throws Exception {
     setLocalOverride(true);
     client = new ConfigClient(path);
+    this.path = path;
   }
 
   /**
    * 
    * @param path - The path of the hosts.properties file
    * @param refresh - The period in seconds at which the config properties should be refreshed. 0
-   *        indicates no automated timer
+   *        indicates no automated refresh
    * @throws Exception
    */
   public ConfigrdPropertyPlaceholderConfigurer(String path, int refresh) throws Exception {
-    client = new ConfigClient(path, refresh, Method.HOST_FILE);
+    client = new ConfigClient(path, 0, Method.HOST_FILE);
+    this.path = path;
+    this.refresh = refresh;
   }
 
   @Override
   public <T> T getProperty(String key, Class<T> clazz) {
 
-    return client.getProperty(key, clazz);
+    lookups.increment();
+    ConfigrdPropertySource.record(key);
+    return snapshot.get().getProperty(key, clazz, conversionService);
 
   }
 
   public <T> T getProperty(String key, Class<T> clazz, T value) {
 
-    return client.getProperty(key, clazz, value);
+    T property = getProperty(key, clazz);
+    return property == null ? value : property;
+
+  }
+
+  /**
+   * The currently published generation of properties. Read several keys from the same snapshot to
+   * get a consistent view across a concurrent reload.
+   * 
+   * @return
+   */
+  public ConfigSnapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  /**
+   * The version of the currently published snapshot, incremented on every load. Cheap enough to
+   * poll for changes.
+   * 
+   * @return
+   */
+  public long getVersion() {
+    return snapshot.get().getVersion();
+  }
 
+  /**
+   * @return the number of values which failed to resolve or convert on reload
+   */
+  public long getInjectionFailureCount() {
+    return injector == null ? 0 : injector.getFailureCount();
+  }
+
+  /**
+   * @return the number of calls to {@link #getProperty(String, Class)}
+   */
+  public long getLookupCount() {
+    return lookups.sum();
   }
 
+  /**
+   * Loads the first snapshot. If a snapshot file from a previous run exists it is served straight
+   * away, waiting at most the startup timeout for the live source; a live snapshot which arrives
+   * later is reconciled once the context has started.
+   */
   protected void init() {
 
-    client.init();
-    Properties props = client.getProperties();
-    super.setProperties(props);
+    ConfigSnapshot cached = readSnapshotFile();
+
+    if (cached == null) {
+      snapshot.set(load());
+      writeSnapshotFile(snapshot.get());
+      return;
+    }
+
+    snapshot.set(cached);
+    CompletableFuture<ConfigSnapshot> live =
+        CompletableFuture.supplyAsync(this::load, loader.executor());
 
     try {
-      mergeProperties();
-    } catch (IOException io) {
-      // nothing
+
+      ConfigSnapshot loaded = live.get(startupTimeout, TimeUnit.MILLISECONDS);
+      snapshot.set(loaded);
+      writeSnapshotFile(loaded);
+      return;
+
+    } catch (TimeoutException e) {
+      logger.info("Starting from snapshot file " + snapshotFile.getPath() + " version "
+          + cached.getVersion() + ", reconciling with the config source in the background");
+    } catch (ExecutionException e) {
+      logger.warn("Unable to load config, starting from snapshot file " + snapshotFile.getPath()
+          + " version " + cached.getVersion(), e.getCause());
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
+
+    pending = live;
+  }
+
+  /**
+   * Loads a new, unpublished generation of properties. The client and each of the configured
+   * locations are fetched concurrently and merged in precedence order.
+   * 
+   * @return
+   */
+  protected ConfigSnapshot load() {
+    return load(false);
+  }
+
+  /**
+   * @param fresh whether to fetch even if the shared load is still current
+   * @return
+   */
+  private ConfigSnapshot load(boolean fresh) {
+
+    ConfigSnapshot current = snapshot.get();
+
+    if (sharedCache) {
+
+      long ttl = fresh || watch ? 0 : refresh > 0 ? refresh * 1000L : Long.MAX_VALUE;
+      ConfigSnapshot loaded = sharedEntry().get(() -> fetch().getProperties(), ttl);
+
+      if (current != ConfigSnapshot.EMPTY && loaded.getFingerprint() == current.getFingerprint())
+        return current;
+
+      return loaded.derive(current.getVersion() + 1, decryptor);
+    }
+
+    LayeredConfigLoader.Result result = fetch();
+    Properties props = result.getProperties();
+
+    synchronized (this) {
+
+      // no layer changed since the loader merged the properties of the last snapshot
+      if (result.isUnchanged() && props == unchangedProps && unchangedSnapshot != null)
+        return unchangedSnapshot;
+
+      ConfigSnapshot loaded = current != ConfigSnapshot.EMPTY
+          && ConfigSnapshot.fingerprint(props) == current.getFingerprint() ? current
+              : ConfigSnapshot.of(current.getVersion() + 1, props, decryptor);
+
+      unchangedProps = props;
+      unchangedSnapshot = loaded;
+      return loaded;
+    }
+  }
+
+  private LayeredConfigLoader.Result fetch() {
+
+    try {
+      return loader.load(layers());
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to load config from " + path, e);
+    }
+  }
+
+  private synchronized SharedConfigCache.Entry sharedEntry() {
+
+    if (shared == null) {
+
+      String host = hostName != null ? hostName : client.getEnvironment().detectHostName();
+      shared = SharedConfigCache.acquire(path + "|" + environmentName + "|"
+          + Arrays.toString(profiles) + "|" + host + "|" + Arrays.toString(locations) + "|"
+          + localOverride + "|" + fileEncoding);
+    }
+
+    return shared;
+  }
+
+  /**
+   * The config layers in ascending order of precedence. The client's layer, followed by a layer per
+   * additional profile, overrides the locations if local override is set, as the merge in
+   * {@link #mergeProperties()} used to do.
+   * 
+   * @return
+   */
+  protected List<Layer> layers() {
+
+    List<Layer> config = new ArrayList<>(profiles.length + 1);
+
+    config.add(new Layer(path, () -> {
+      client.init();
+      return client.getProperties();
+    }));
+
+    for (String profile : profiles) {
+      config.add(new Layer("profile " + profile, () -> loadProfile(profile), true));
+    }
+
+    List<Layer> layers = new ArrayList<>(locations.length + config.size());
+
+    if (!localOverride)
+      layers.addAll(config);
+
+    for (Resource location : locations) {
+
+      if (isHttp(location))
+        layers.add(new Layer(location.getDescription(), () -> fetchLocation(location), true));
+      else
+        layers.add(new Layer(location.getDescription(), () -> loadLocation(location)));
+    }
+
+    if (localOverride)
+      layers.addAll(config);
+
+    return layers;
+  }
+
+  /**
+   * The snapshot already merges the client's properties with the locations, so the placeholder
+   * resolution at startup uses it instead of loading the locations again
+   */
+  @Override
+  protected Properties mergeProperties() throws IOException {
+    return snapshot.get().toProperties();
   }
 
   @Override
@@ -94,68 +393,668 @@ public class ConfigrdPropertyPlaceholderConfigurer extends PropertySourcesPlaceh
       throws BeansException {
 
     init();
+    registerPropertySource();
+
+    if (injector == null)
+      this.injector =
+          new ValueInjector(beanFactory, this.placeholderPrefix, this.placeholderSuffix);
+
+    injector.setSnapshot(snapshot.get());
+    injector.setEnvironment(environment, localOverride);
+    injector.setParallelism(injectionParallelism);
+    injector.recordBeanDefinitions();
+
+    beanFactory.addBeanPostProcessor(injector);
+
+    if (BOOT_PRESENT && environment instanceof ConfigurableEnvironment) {
+      this.rebinder = new ConfigurationPropertiesRebinder(beanFactory,
+          (ConfigurableEnvironment) environment, localOverride, snapshot::get);
+      rebinder.setProxying(proxyConfigurationProperties);
+      beanFactory.addBeanPostProcessor(rebinder);
+    }
+
+    if (beanFactory.getRegisteredScope(ConfigRefreshScope.NAME) == null)
+      beanFactory.registerScope(ConfigRefreshScope.NAME, refreshScope);
+    else
+      logger.info("A '" + ConfigRefreshScope.NAME + "' scope is already registered, "
+          + "@RefreshScope beans won't be rebuilt on reload");
+
+    if (!customPropertySources)
+      super.setPropertySources(livePropertySources());
+
     super.postProcessBeanFactory(beanFactory);
 
   }
 
-  public void reload() {
+  /**
+   * Loads a new snapshot and re-injects the beans affected by it. The snapshot is only published
+   * if every affected value resolves and converts, otherwise the last-known-good snapshot stays in
+   * place and no bean is touched. The config is always fetched, even if a shared load is still
+   * current.
+   * 
+   * @return what the reload did
+   */
+  public ReloadResult reload() {
+    return reload(true);
+  }
+
+  private ReloadResult reload(boolean fresh) {
 
-    init();
-    injector.reloadBeans(client.getProperties(), this.placeholderPrefix, this.placeholderSuffix);
+    long start = System.nanoTime();
+
+    try {
+
+      ReloadResult result = publish(load(fresh));
+      metrics.reloaded(result, System.nanoTime() - start);
+      return result;
+
+    } catch (RuntimeException e) {
+      metrics.reloadFailed(e, System.nanoTime() - start);
+      throw e;
+    }
+  }
+
+  /**
+   * Publishes a loaded snapshot and re-injects the beans affected by it, unless any of the new
+   * values fails
+   * 
+   * @param loaded
+   * @return what was published
+   */
+  protected synchronized ReloadResult publish(ConfigSnapshot loaded) {
+
+    ConfigSnapshot previous = snapshot.get();
+
+    if (loaded == previous || (previous != ConfigSnapshot.EMPTY
+        && loaded.getFingerprint() == previous.getFingerprint())) {
+      logger.debug("Config unchanged, skipping reload");
+      return new ReloadResult(ReloadResult.Status.UNCHANGED, previous.getVersion(), 0, 0);
+    }
+
+    // concurrent loads number their snapshots from the same published one, the version is only
+    // final here
+    if (loaded.getVersion() != previous.getVersion() + 1)
+      loaded = loaded.derive(previous.getVersion() + 1, decryptor);
+
+    Set<String> changed = loaded.changedKeys(previous);
+
+    if (injector == null) {
+      snapshot.set(loaded);
+      decryptor.retain(loaded.values());
+      writeSnapshotFile(loaded);
+      notifyChanged(previous, loaded, changed);
+      return new ReloadResult(ReloadResult.Status.APPLIED, loaded.getVersion(), changed.size(), 0);
+    }
+
+    Batch batch = injector.prepare(loaded, changed);
+
+    if (rebinder != null)
+      rebinder.prepare(batch, loaded, changed);
+
+    if (batch.isValid()) {
+      snapshot.set(loaded);
+      decryptor.retain(loaded.values());
+    }
+
+    if (!injector.apply(batch)) {
+      snapshot.set(previous);
+      return new ReloadResult(ReloadResult.Status.REJECTED, loaded.getVersion(), changed.size(),
+          0);
+    }
+
+    refreshScope.refresh(changed);
+    writeSnapshotFile(loaded);
+    notifyChanged(previous, loaded, changed);
+    return new ReloadResult(ReloadResult.Status.APPLIED, loaded.getVersion(), changed.size(),
+        batch.size());
+  }
+
+  private void notifyChanged(ConfigSnapshot previous, ConfigSnapshot loaded, Set<String> changed) {
+
+    if (changed.isEmpty())
+      return;
+
+    ConfigChangeEvent event = new ConfigChangeEvent(this, previous, loaded, changed);
+
+    for (Consumer<ConfigChangeEvent> listener : changeListeners) {
+      try {
+        listener.accept(event);
+      } catch (RuntimeException e) {
+        logger.warn("Config change listener failed for " + event, e);
+      }
+    }
+
+    if (eventPublisher != null)
+      eventPublisher.publishEvent(event);
+  }
+
+  /**
+   * Notified once per applied reload with the changed keys, before the change is published as an
+   * application event. See {@link ConfigChanges} for reactive subscriptions.
+   * 
+   * @param listener
+   */
+  public void addChangeListener(Consumer<ConfigChangeEvent> listener) {
+    changeListeners.add(listener);
+  }
+
+  public void removeChangeListener(Consumer<ConfigChangeEvent> listener) {
+    changeListeners.remove(listener);
   }
 
   @Override
-  public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
-    if (injector == null)
-      this.injector = new ValueInjector(applicationContext);
+  public boolean isAutoStartup() {
+    return true;
+  }
+
+  @Override
+  public int getPhase() {
+    return Integer.MIN_VALUE;
+  }
+
+  /**
+   * True from start to stop, whether or not a refresh is scheduled, so the context always stops the
+   * configurer and releases what it holds
+   */
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Starts the refresh schedule and the directory watcher once the context is refreshed, if a
+   * refresh period is set or watching is enabled
+   */
+  @Override
+  public synchronized void start() {
+
+    running = true;
+
+    if (pending != null) {
+      pending.whenComplete((loaded, e) -> {
+        if (e == null)
+          publish(loaded);
+        else
+          logger.warn("Unable to reconcile config with its source", e);
+      });
+      pending = null;
+    }
+
+    if ((refresh <= 0 && !watch) || (scheduler != null && scheduler.isRunning()))
+      return;
+
+    scheduler = new RefreshScheduler(() -> reload(false), refresh * 1000L, refreshJitter * 1000L,
+        maxRefreshBackoff * 1000L);
+    scheduler.start();
+
+    if (watch)
+      startWatcher();
+  }
+
+  /**
+   * Stops the refresh schedule, the directory watcher and their threads, called when the context
+   * is closed
+   */
+  @Override
+  public synchronized void stop() {
+
+    running = false;
+
+    if (watcher != null) {
+      try {
+        watcher.close();
+      } catch (IOException e) {
+        logger.warn("Error closing config directory watcher", e);
+      }
+      watcher = null;
+    }
+
+    if (scheduler != null)
+      scheduler.stop();
+
+    loader.shutdown();
+
+    if (injector != null)
+      injector.shutdown();
+
+    if (shared != null) {
+      SharedConfigCache.release(shared);
+      shared = null;
+    }
+  }
+
+  @Override
+  public void stop(Runnable callback) {
+    stop();
+    callback.run();
+  }
+
+  /**
+   * Destroys the beans of the refresh scope when the context is closed, which Spring doesn't do for
+   * custom scopes, and releases everything else in case the configurer was never started
+   */
+  @Override
+  public void destroy() {
+    stop();
+    refreshScope.destroy();
+  }
+
+  @Override
+  public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Whether to register a {@link ConfigrdPropertySource} backed by the current snapshot in the
+   * Spring Environment. It takes precedence over the other property sources if local override is
+   * set, otherwise it comes last. Defaults to true.
+   * 
+   * @param exposeToEnvironment
+   */
+  public void setExposeToEnvironment(boolean exposeToEnvironment) {
+    this.exposeToEnvironment = exposeToEnvironment;
+  }
+
+  /**
+   * The number of threads to re-inject beans with when a reload affects more than a thousand
+   * injection points, partitioned by bean. The reload completes once every bean is re-injected.
+   * Defaults to 0, re-injecting on the refresh thread.
+   * 
+   * @param injectionParallelism
+   */
+  public void setInjectionParallelism(int injectionParallelism) {
+    this.injectionParallelism = injectionParallelism;
+  }
+
+  /**
+   * Swap {@code @ConfigurationProperties} beans whose prefix is in the loaded config behind a class
+   * based proxy on reload, so readers never see one partially rebound. The proxy changes the bean's
+   * class and identity, which serializers and tools inspecting beans can notice. Disabled by
+   * default, rebinding the beans in place.
+   * 
+   * @param proxyConfigurationProperties
+   */
+  public void setProxyConfigurationProperties(boolean proxyConfigurationProperties) {
+    this.proxyConfigurationProperties = proxyConfigurationProperties;
+  }
+
+  /**
+   * The upper limit in seconds for the exponential backoff after failed refreshes. Defaults to 300.
+   * 
+   * @param maxRefreshBackoff
+   */
+  public void setMaxRefreshBackoff(int maxRefreshBackoff) {
+    this.maxRefreshBackoff = maxRefreshBackoff;
+  }
+
+  /**
+   * Sets the receiver of reload and fetch timings, see {@link ConfigrdMetrics} for Micrometer
+   * 
+   * @param metrics
+   */
+  public void setMetrics(ConfigMetrics metrics) {
+    this.metrics = metrics == null ? ConfigMetrics.NONE : metrics;
+    loader.setMetrics(this.metrics);
+  }
+
+  /**
+   * How long in milliseconds a bean evicted from the refresh scope is kept alive for calls in
+   * progress before it is destroyed. Defaults to 1000.
+   * 
+   * @param refreshDrainTimeout
+   */
+  public void setRefreshDrainTimeout(long refreshDrainTimeout) {
+    refreshScope.setDrainTimeout(refreshDrainTimeout);
+  }
+
+  /**
+   * The period in seconds at which the config properties should be refreshed. 0 disables the
+   * automated refresh.
+   * 
+   * @param refresh
+   */
+  public void setRefresh(int refresh) {
+    this.refresh = refresh;
+  }
+
+  /**
+   * The maximum random delay in seconds added to every refresh period, to spread the fetches of
+   * many instances over time. Defaults to 0.
+   * 
+   * @param refreshJitter
+   */
+  public void setRefreshJitter(int refreshJitter) {
+    this.refreshJitter = refreshJitter;
+  }
+
+  /**
+   * Reload as soon as a file in the local config directories changes, instead of waiting for the
+   * refresh period. Only applies to hosts files and config directories on the local file system,
+   * e.g. file: and exploded classpath: locations.
+   * 
+   * @param watch
+   */
+  public void setWatch(boolean watch) {
+    this.watch = watch;
+  }
+
+  /**
+   * How long in milliseconds to wait for a burst of file events to settle before reloading once.
+   * Defaults to 500.
+   * 
+   * @param watchDebounce
+   */
+  public void setWatchDebounce(long watchDebounce) {
+    this.watchDebounce = watchDebounce;
+  }
+
+  private void startWatcher() {
+
+    try {
+
+      String host = hostName != null ? hostName : client.getEnvironment().detectHostName();
+      Set<Path> dirs = ConfigDirectoryWatcher.resolveDirectories(path, host, environmentName,
+          profiles, resourceLoader);
+
+      if (dirs.isEmpty()) {
+        logger.warn("No local config directories to watch for " + path);
+        return;
+      }
+
+      watcher = new ConfigDirectoryWatcher(dirs, () -> scheduler.trigger(watchDebounce));
+      logger.info("Watching config directories " + dirs);
+
+    } catch (IOException e) {
+      logger.warn("Unable to watch config directories for " + path, e);
+    }
+  }
+
+  /**
+   * Share loaded config with every other configurer in the JVM which opted in and uses the same
+   * hosts file, environment, host name and locations, instead of each fetching and holding its own
+   * copy. A shared load is reused for the refresh period, or until stopped if refresh is off, so
+   * only one of the sharers fetches per period. Watched configurers and explicit {@link #reload()}
+   * calls always fetch but still share unchanged properties. Disabled by default.
+   * 
+   * @param sharedCache
+   */
+  public void setSharedCache(boolean sharedCache) {
+    this.sharedCache = sharedCache;
+  }
+
+  /**
+   * A local file to keep the last-known-good snapshot in. When it exists at startup, the context
+   * starts from it instead of waiting for the config source. Disabled by default.
+   * 
+   * @param snapshotFile
+   */
+  public void setSnapshotFile(String snapshotFile) {
+    this.snapshotFile = new SnapshotFile(Paths.get(snapshotFile));
+  }
+
+  /**
+   * How long in milliseconds startup waits for the config source before falling back to the
+   * snapshot file. Only applies when a snapshot file exists. Defaults to 0, i.e. start from the
+   * snapshot file straight away and reconcile in the background.
+   * 
+   * @param startupTimeout
+   */
+  public void setStartupTimeout(long startupTimeout) {
+    this.startupTimeout = startupTimeout;
+  }
+
+  /**
+   * The sources placeholders are resolved from: the live snapshot instead of a copy of the merged
+   * properties, so beans built after a reload, like refresh scoped beans, see its values
+   */
+  private PropertySources livePropertySources() {
+
+    MutablePropertySources sources = new MutablePropertySources();
+
+    if (environment != null)
+      sources.addLast(
+          new PropertySource<Environment>(ENVIRONMENT_PROPERTIES_PROPERTY_SOURCE_NAME, environment) {
+            @Override
+            public Object getProperty(String key) {
+              return source.getProperty(key);
+            }
+          });
+
+    if (localOverride)
+      sources.addFirst(new ConfigrdPropertySource(this));
+    else
+      sources.addLast(new ConfigrdPropertySource(this));
+
+    return sources;
+  }
+
+  private void registerPropertySource() {
+
+    if (!exposeToEnvironment || !(environment instanceof ConfigurableEnvironment))
+      return;
+
+    MutablePropertySources sources = ((ConfigurableEnvironment) environment).getPropertySources();
+
+    if (sources.contains(ConfigrdPropertySource.NAME))
+      sources.remove(ConfigrdPropertySource.NAME);
+
+    if (localOverride)
+      sources.addFirst(new ConfigrdPropertySource(this));
+    else
+      sources.addLast(new ConfigrdPropertySource(this));
+  }
+
+  private ConfigSnapshot readSnapshotFile() {
+
+    if (snapshotFile == null || !snapshotFile.exists())
+      return null;
+
+    try {
+      return snapshotFile.read().decryptedBy(decryptor);
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Ignoring unreadable snapshot file " + snapshotFile.getPath(), e);
+      return null;
+    }
+  }
+
+  private void writeSnapshotFile(ConfigSnapshot loaded) {
+
+    if (snapshotFile == null)
+      return;
+
+    try {
+      snapshotFile.write(loaded);
+    } catch (IOException e) {
+      logger.warn("Unable to write snapshot file " + snapshotFile.getPath(), e);
+    }
+  }
+
+  @Override
+  public void setPropertySources(PropertySources propertySources) {
+    super.setPropertySources(propertySources);
+    this.customPropertySources = true;
+  }
+
+  @Override
+  public void setFileEncoding(String encoding) {
+    super.setFileEncoding(encoding);
+    this.fileEncoding = encoding;
+  }
+
+  @Override
+  public void setIgnoreResourceNotFound(boolean ignoreResourceNotFound) {
+    super.setIgnoreResourceNotFound(ignoreResourceNotFound);
+    this.ignoreResourceNotFound = ignoreResourceNotFound;
+  }
+
+  @Override
+  public void setLocation(Resource location) {
+    setLocations(location);
+  }
+
+  @Override
+  public void setLocations(Resource... locations) {
+    super.setLocations(locations);
+    this.locations = locations;
+  }
+
+  /**
+   * The {@value #PROFILE_FILE} in the location the hosts file maps the profile to, on its own,
+   * without the cascade of its parent directories which the environment's layer already has
+   */
+  private Properties loadProfile(String profile) throws IOException {
+
+    String location = LayerCache.load(resourceLoader.getResource(path), null).getProperty(profile);
+
+    if (location == null) {
+      logger.debug("No config location for profile " + profile + " in " + path);
+      return NO_PROPERTIES;
+    }
+
+    location = location.trim();
+    String file = location.endsWith("/") ? location + PROFILE_FILE : location + "/" + PROFILE_FILE;
+
+    try {
+      return LayerCache.load(resourceLoader.getResource(file), fileEncoding);
+    } catch (FileNotFoundException e) {
+      logger.debug("No config for profile " + profile + ": " + e.getMessage());
+      return NO_PROPERTIES;
+    }
+  }
+
+  private boolean isHttp(Resource location) {
+
+    try {
+      return location instanceof UrlResource && location.getURL().getProtocol().startsWith("http");
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Fetches an http location conditionally, returning the same properties while it is unchanged
+   */
+  private Properties fetchLocation(Resource location) throws IOException {
+
+    HttpPropertiesSource source = httpSources.computeIfAbsent(location,
+        l -> new HttpPropertiesSource(getURL(l), fileEncoding));
+
+    try {
+      return source.fetch();
+    } catch (FileNotFoundException | UnknownHostException e) {
+      if (!ignoreResourceNotFound)
+        throw e;
+
+      logger.info("Properties resource not found: " + e.getMessage());
+      return new Properties();
+    }
+  }
+
+  private static URL getURL(Resource location) {
+
+    try {
+      return location.getURL();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Properties loadLocation(Resource location) throws IOException {
+
+    Properties props = new Properties();
+
+    try {
+      PropertiesLoaderUtils.fillProperties(props, new EncodedResource(location, fileEncoding));
+    } catch (FileNotFoundException | UnknownHostException e) {
+      if (!ignoreResourceNotFound)
+        throw e;
+
+      logger.info("Properties resource not found: " + e.getMessage());
+    }
+
+    return props;
   }
 
   @Override
   public void setEnvironment(Environment environment) {
     super.setEnvironment(environment);
+    this.environment = environment;
 
     String env = null;
 
     if (environment != null && environment.getActiveProfiles() != null
         && environment.getActiveProfiles().length > 0) {
-      env = environment.getActiveProfiles()[0];
+
+      String[] active = environment.getActiveProfiles();
+      env = active[0];
+
+      if (!profilesSet)
+        profiles = Arrays.copyOfRange(active, 1, active.length);
     }
 
     setEnvironment(env);
   }
 
   public void setEnvironment(String environmentName) {
+    this.environmentName = environmentName;
     client.getEnvironment().setEnvironmentName(environmentName);
   }
 
+  /**
+   * Additional profiles layered in order on top of the host and environment cascade, later
+   * profiles overriding earlier ones. Each is looked up in the hosts file like an environment and
+   * only the {@value #PROFILE_FILE} in its location is loaded. Parsed profile files are cached
+   * across configurers in the JVM and revalidated on every load. Unless set, taken from the active
+   * profiles after the first one, which is the environment, when the Spring Environment is set.
+   * 
+   * @param profiles
+   */
+  public void setProfiles(String... profiles) {
+    this.profiles = profiles == null ? new String[0] : profiles;
+    this.profilesSet = true;
+  }
+
   public void setHostName(String hostName) {
+    this.hostName = hostName;
     client.getEnvironment().setHostName(hostName);
   }
 
   /**
-   * Set password on the encryptor. If an encryptor isn't configured, a BasicTextEncryptor will be
-   * initialized and the password set on it. The basic assumed encryption algorithm is
-   * PBEWithMD5AndDES. This can be changed by setting the StandardPBEStringEncryptor.
+   * Set password on the encryptor. A pool of PBEWithMD5AndDES encryptors, one per processor, is
+   * initialized with it. ENC(...) values are then decrypted on first access and the plaintext
+   * cached by ciphertext across reloads. The algorithm can be changed by setting the encryptor.
    * 
    * @param password
    */
   public void setPassword(String password) {
-    client.setPassword(password);
+    decryptor.setPassword(password);
   }
 
   /**
-   * Override default text encryptor (StandardPBEStringEncryptor). Enables overriding both password
-   * and algorithm.
+   * Override the default text encryptor. Enables overriding both password and algorithm. Pass a
+   * PooledPBEStringEncryptor to serve concurrent first access without contention.
    * 
    * @param encryptor
    */
+  public void setStringEncryptor(PBEStringEncryptor encryptor) {
+    decryptor.setEncryptor(encryptor);
+  }
+
+  /**
+   * Override default text encryptor (StandardPBEStringEncryptor).
+   * 
+   * @param config
+   * @deprecated use {@link #setStringEncryptor(PBEStringEncryptor)}, which also accepts a
+   *             PooledPBEStringEncryptor
+   */
+  @Deprecated
   public void setTextEncryptor(StandardPBEStringEncryptor config) {
-    client.setTextEncryptor(config);
+    setStringEncryptor(config);
   }
 
   @Override
   public Properties getProperties() {
-    return client.getProperties();
+    return snapshot.get().toProperties();
   }
 
 }
@@ -0,0 +1,73 @@
+package com.appcrossings.config.spring;
+
+import java.util.Set;
+import org.springframework.core.env.EnumerablePropertySource;
+
+/**
+ * Exposes the configurer's current snapshot in the Spring Environment
+ */
+public class ConfigrdPropertySource
+    extends EnumerablePropertySource<ConfigrdPropertyPlaceholderConfigurer> {
+
+  public static final String NAME = "configrd";
+
+  private static final ThreadLocal<Set<String>> tracked = new ThreadLocal<>();
+
+  public ConfigrdPropertySource(ConfigrdPropertyPlaceholderConfigurer configurer) {
+    super(NAME, configurer);
+  }
+
+  @Override
+  public boolean containsProperty(String name) {
+    record(name);
+    return source.getSnapshot().containsProperty(name);
+  }
+
+  @Override
+  public Object getProperty(String name) {
+    record(name);
+    return source.getSnapshot().getProperty(name);
+  }
+
+  /**
+   * @return the property names of the current snapshot. The array is shared by all callers for the
+   *         lifetime of the snapshot and must not be modified.
+   */
+  @Override
+  public String[] getPropertyNames() {
+    return source.getSnapshot().getPropertyNameArray();
+  }
+
+  /**
+   * Records the key if keys are being tracked on this thread
+   * 
+   * @param key
+   */
+  static void record(String key) {
+
+    Set<String> keys = tracked.get();
+
+    if (keys != null)
+      keys.add(key);
+  }
+
+  /**
+   * Records the keys read on this thread into the given set, until tracking is switched to another
+   * set
+   * 
+   * @param keys the set to record into, null to stop tracking
+   * @return the set keys were recorded into before
+   */
+  static Set<String> track(Set<String> keys) {
+
+    Set<String> previous = tracked.get();
+
+    if (keys == null)
+      tracked.remove();
+    else
+      tracked.set(keys);
+
+    return previous;
+  }
+
+}
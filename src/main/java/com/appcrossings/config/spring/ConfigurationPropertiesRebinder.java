@@ -0,0 +1,542 @@
+package com.appcrossings.config.spring;
+
+import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.scope.ScopedObject;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.AbstractBindHandler;
+import org.springframework.boot.context.properties.bind.BindContext;
+import org.springframework.boot.context.properties.bind.BindHandler;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.bind.handler.IgnoreErrorsBindHandler;
+import org.springframework.boot.context.properties.bind.handler.NoUnboundElementsBindHandler;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName.Form;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+import com.appcrossings.config.spring.ValueInjector.Batch;
+
+/**
+ * Rebinds {@code @ConfigurationProperties} beans whose prefix covers a changed key
+ */
+final class ConfigurationPropertiesRebinder implements BeanPostProcessor {
+
+  private static final class Bound {
+
+    private final ConfigurationProperties annotation;
+
+    private final String beanName;
+
+    private final ConfigurationPropertyName prefix;
+
+    /**
+     * The bean's readable properties by the uniform form of their name
+     */
+    private final Map<String, PropertyDescriptor> properties = new HashMap<>();
+
+    private final Swappable source;
+
+    private final Object target;
+
+    private final Class<?> type;
+
+    private Bound(String beanName, Object target, ConfigurationProperties annotation,
+        Swappable source) {
+      this.beanName = beanName;
+      this.target = target;
+      this.annotation = annotation;
+      this.source = source;
+      this.prefix = ConfigurationPropertyName.of(annotation.prefix());
+      this.type = ClassUtils.getUserClass(target);
+
+      for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(type)) {
+        if (property.getReadMethod() != null)
+          properties.put(property.getName().toLowerCase(Locale.ENGLISH), property);
+      }
+    }
+
+    private Object current() {
+      return source != null ? source.target : target;
+    }
+  }
+
+  private static final class Rebind implements Runnable {
+
+    private final Bound bound;
+
+    private final Object fresh;
+
+    private final Set<String> names;
+
+    private final Object next;
+
+    private Rebind(Bound bound, Object fresh, Object next, Set<String> names) {
+      this.bound = bound;
+      this.fresh = fresh;
+      this.next = next;
+      this.names = names;
+    }
+
+    @Override
+    public void run() {
+
+      if (bound.source != null)
+        bound.source.target = next;
+      else
+        copy(bound, fresh, bound.target, names);
+    }
+
+    @Override
+    public String toString() {
+      return bound.beanName + " (" + bound.prefix + ")";
+    }
+  }
+
+  private static final class SnapshotPropertySource
+      extends EnumerablePropertySource<ConfigSnapshot> {
+
+    private SnapshotPropertySource(ConfigSnapshot snapshot) {
+      super(ConfigrdPropertySource.NAME, snapshot);
+    }
+
+    @Override
+    public boolean containsProperty(String name) {
+      return source.containsProperty(name);
+    }
+
+    @Override
+    public Object getProperty(String name) {
+      return source.getProperty(name);
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+      return source.getPropertyNameArray();
+    }
+  }
+
+  /**
+   * Collects the top level properties under the prefix which the binder populated
+   */
+  private static final class Tracking extends AbstractBindHandler {
+
+    private final Set<String> names;
+
+    private final ConfigurationPropertyName prefix;
+
+    private Tracking(BindHandler parent, ConfigurationPropertyName prefix, Set<String> names) {
+      super(parent);
+      this.prefix = prefix;
+      this.names = names;
+    }
+
+    @Override
+    public Object onSuccess(ConfigurationPropertyName name, Bindable<?> target, BindContext context,
+        Object result) {
+
+      if (prefix.isAncestorOf(name))
+        names.add(name.getElement(prefix.getNumberOfElements(), Form.UNIFORM));
+
+      return super.onSuccess(name, target, context, result);
+    }
+  }
+
+  /**
+   * A target source without locking, read on every call through the proxy
+   */
+  private static final class Swappable implements TargetSource {
+
+    private volatile Object target;
+
+    private final Class<?> type;
+
+    private Swappable(Object target) {
+      this.target = target;
+      this.type = target.getClass();
+    }
+
+    @Override
+    public Class<?> getTargetClass() {
+      return type;
+    }
+
+    @Override
+    public boolean isStatic() {
+      return false;
+    }
+
+    @Override
+    public Object getTarget() {
+      return target;
+    }
+
+    @Override
+    public void releaseTarget(Object target) {}
+  }
+
+  private static final Log logger = LogFactory.getLog(ConfigurationPropertiesRebinder.class);
+
+  private final List<Bound> beans = new CopyOnWriteArrayList<>();
+
+  private final ConfigurableListableBeanFactory beanFactory;
+
+  private final ConfigurableEnvironment environment;
+
+  private final boolean first;
+
+  private final Supplier<ConfigSnapshot> loaded;
+
+  private boolean proxying;
+
+  /**
+   * @param beanFactory
+   * @param environment
+   * @param first whether the config takes precedence over the environment's other sources
+   * @param loaded the currently loaded snapshot
+   */
+  ConfigurationPropertiesRebinder(ConfigurableListableBeanFactory beanFactory,
+      ConfigurableEnvironment environment, boolean first, Supplier<ConfigSnapshot> loaded) {
+    this.beanFactory = beanFactory;
+    this.environment = environment;
+    this.first = first;
+    this.loaded = loaded;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName)
+      throws BeansException {
+
+    if (bean instanceof ScopedObject || !beanFactory.containsBeanDefinition(beanName)
+        || !beanFactory.getMergedBeanDefinition(beanName).isSingleton())
+      return bean;
+
+    Object target = unwrap(bean);
+    ConfigurationProperties annotation = AnnotationUtils
+        .findAnnotation(ClassUtils.getUserClass(target), ConfigurationProperties.class);
+
+    if (annotation == null)
+      return bean;
+
+    if (!proxying || target != bean || !isProxyable(target.getClass())
+        || hasValueMembers(target.getClass()) || hasDestroyCallback(target, beanName)
+        || !isLoaded(ConfigurationPropertyName.of(annotation.prefix()))) {
+      logger.debug("Not proxying " + beanName + ", it will be rebound in place");
+      beans.add(new Bound(beanName, target, annotation, null));
+      return bean;
+    }
+
+    Swappable source = new Swappable(target);
+    beans.add(new Bound(beanName, target, annotation, source));
+
+    ProxyFactory factory = new ProxyFactory();
+    factory.setTargetSource(source);
+    factory.setProxyTargetClass(true);
+    return factory.getProxy(beanFactory.getBeanClassLoader());
+  }
+
+  /**
+   * Binds the beans affected by the changed keys into fresh instances and adds their writes, or
+   * their failures, to the batch
+   *
+   * @param batch
+   * @param snapshot
+   * @param changedKeys
+   */
+  void prepare(Batch batch, ConfigSnapshot snapshot, Set<String> changedKeys) {
+
+    Set<Bound> affected = affected(changedKeys);
+
+    if (affected.isEmpty())
+      return;
+
+    Binder binder = binder(snapshot);
+
+    for (Bound bound : affected) {
+
+      try {
+
+        // removed keys aren't bound, their properties are reset to the fresh instance's defaults
+        Set<String> names = changedProperties(bound, changedKeys);
+
+        Object fresh = BeanUtils.instantiateClass(bound.type);
+        binder.bind(bound.prefix, Bindable.ofInstance(fresh),
+            new Tracking(handler(bound.annotation), bound.prefix, names));
+
+        Object next = null;
+
+        if (bound.source != null) {
+          next = BeanUtils.instantiateClass(bound.type);
+          copyFields(bound.current(), next);
+          copy(bound, fresh, next, names);
+        }
+
+        batch.defer(new Rebind(bound, fresh, next, names));
+
+      } catch (Exception e) {
+        batch.fail(bound.beanName + " from '" + bound.prefix + "': " + e.getMessage());
+        logger.debug("Rebind failure", e);
+      }
+    }
+  }
+
+  /**
+   * Whether to swap beans behind a proxy rather than rebinding them in place. Off by default.
+   * 
+   * @param proxying
+   */
+  void setProxying(boolean proxying) {
+    this.proxying = proxying;
+  }
+
+  int size() {
+    return beans.size();
+  }
+
+  /**
+   * Copies the named properties through their setters, or the field of the same name for read-only
+   * properties such as nested objects
+   */
+  private static void copy(Bound bound, Object from, Object to, Set<String> names) {
+
+    BeanWrapper source = new BeanWrapperImpl(from);
+    BeanWrapper target = new BeanWrapperImpl(to);
+
+    for (String name : names) {
+
+      PropertyDescriptor property = bound.properties.get(name);
+
+      if (property == null)
+        continue;
+
+      if (property.getWriteMethod() != null) {
+        target.setPropertyValue(property.getName(), source.getPropertyValue(property.getName()));
+        continue;
+      }
+
+      Field field = ReflectionUtils.findField(bound.type, property.getName());
+
+      if (field != null && !Modifier.isStatic(field.getModifiers())) {
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, to, ReflectionUtils.getField(field, from));
+      }
+    }
+  }
+
+  /**
+   * Copies every instance field, final ones included, unlike
+   * {@link ReflectionUtils#shallowCopyFieldState}
+   */
+  private static void copyFields(Object from, Object to) {
+
+    ReflectionUtils.doWithFields(ClassUtils.getUserClass(from), f -> {
+      ReflectionUtils.makeAccessible(f);
+      f.set(to, f.get(from));
+    }, f -> !Modifier.isStatic(f.getModifiers()));
+  }
+
+  /**
+   * @return the uniform names of the bean's top level properties named by the changed keys
+   */
+  private Set<String> changedProperties(Bound bound, Set<String> changedKeys) {
+
+    Set<String> names = new HashSet<>();
+
+    for (String key : changedKeys) {
+
+      ConfigurationPropertyName name = name(key);
+
+      if (name != null && bound.prefix.isAncestorOf(name))
+        names.add(name.getElement(bound.prefix.getNumberOfElements(), Form.UNIFORM));
+    }
+
+    return names;
+  }
+
+  private boolean hasDestroyCallback(Object bean, String beanName) {
+
+    if (bean instanceof DisposableBean || bean instanceof AutoCloseable)
+      return true;
+
+    BeanDefinition definition = beanFactory.getMergedBeanDefinition(beanName);
+    String destroyMethod = definition instanceof AbstractBeanDefinition
+        ? ((AbstractBeanDefinition) definition).getDestroyMethodName() : null;
+
+    if (AbstractBeanDefinition.INFER_METHOD.equals(destroyMethod))
+      return ClassUtils.hasMethod(bean.getClass(), "close")
+          || ClassUtils.hasMethod(bean.getClass(), "shutdown");
+
+    if (StringUtils.hasLength(destroyMethod))
+      return true;
+
+    // by name, javax.annotation isn't on the classpath of every JDK
+    for (Method method : ReflectionUtils.getAllDeclaredMethods(bean.getClass())) {
+      for (Annotation annotation : method.getAnnotations()) {
+        if (annotation.annotationType().getName().equals("javax.annotation.PreDestroy"))
+          return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean hasValueMembers(Class<?> type) {
+
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+
+      for (Field field : c.getDeclaredFields()) {
+        if (AnnotationUtils.getAnnotation(field, Value.class) != null)
+          return true;
+      }
+
+      for (Method method : c.getDeclaredMethods()) {
+        if (AnnotationUtils.findAnnotation(method, Value.class) != null)
+          return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Whether any loaded key is under the prefix, beans only bound from other sources, such as the
+   * ones Boot auto-configures, are left as they are
+   */
+  private boolean isLoaded(ConfigurationPropertyName prefix) {
+
+    for (String key : loaded.get().getPropertyNames()) {
+
+      ConfigurationPropertyName name = name(key);
+
+      if (name != null && (prefix.isAncestorOf(name) || prefix.equals(name)))
+        return true;
+    }
+
+    return false;
+  }
+
+  private static boolean isProxyable(Class<?> type) {
+
+    if (Modifier.isFinal(type.getModifiers()))
+      return false;
+
+    for (Method method : type.getMethods()) {
+      if (Modifier.isFinal(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())
+          && method.getDeclaringClass() != Object.class)
+        return false;
+    }
+
+    return true;
+  }
+
+  private Set<Bound> affected(Set<String> changedKeys) {
+
+    Set<Bound> affected = new LinkedHashSet<>();
+
+    if (beans.isEmpty())
+      return affected;
+
+    for (String key : changedKeys) {
+
+      ConfigurationPropertyName name = name(key);
+
+      if (name == null)
+        continue;
+
+      for (Bound bound : beans) {
+        if (bound.prefix.isAncestorOf(name) || bound.prefix.equals(name))
+          affected.add(bound);
+      }
+    }
+
+    return affected;
+  }
+
+  /**
+   * The canonical form of a key, lower cased like Boot's relaxed binding does for camel case keys
+   */
+  private ConfigurationPropertyName name(String key) {
+
+    if (ConfigurationPropertyName.isValid(key))
+      return ConfigurationPropertyName.of(key);
+
+    String lower = key.toLowerCase(Locale.ENGLISH);
+    return ConfigurationPropertyName.isValid(lower) ? ConfigurationPropertyName.of(lower) : null;
+  }
+
+  private Binder binder(ConfigSnapshot snapshot) {
+
+    MutablePropertySources sources = new MutablePropertySources(environment.getPropertySources());
+    SnapshotPropertySource loaded = new SnapshotPropertySource(snapshot);
+
+    if (sources.contains(ConfigrdPropertySource.NAME))
+      sources.replace(ConfigrdPropertySource.NAME, loaded);
+    else if (first)
+      sources.addFirst(loaded);
+    else
+      sources.addLast(loaded);
+
+    return new Binder(ConfigurationPropertySources.from(sources),
+        new PropertySourcesPlaceholdersResolver(sources));
+  }
+
+  private BindHandler handler(ConfigurationProperties annotation) {
+
+    BindHandler handler = BindHandler.DEFAULT;
+
+    if (annotation.ignoreInvalidFields())
+      handler = new IgnoreErrorsBindHandler(handler);
+
+    if (!annotation.ignoreUnknownFields())
+      handler = new NoUnboundElementsBindHandler(handler);
+
+    return handler;
+  }
+
+  private Object unwrap(Object bean) {
+
+    Object target = AopProxyUtils.getSingletonTarget(bean);
+
+    while (target != null) {
+      bean = target;
+      target = AopProxyUtils.getSingletonTarget(bean);
+    }
+
+    return bean;
+  }
+
+}
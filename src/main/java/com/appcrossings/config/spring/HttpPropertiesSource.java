@@ -0,0 +1,116 @@
+package com.appcrossings.config.spring;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Fetches a properties file over http with conditional requests
+ */
+final class HttpPropertiesSource {
+
+  private static final Log logger = LogFactory.getLog(HttpPropertiesSource.class);
+
+  private Properties cached;
+
+  private final String encoding;
+
+  private String etag;
+
+  private String lastModified;
+
+  private final URL url;
+
+  /**
+   * @param url
+   * @param encoding of the properties file, null for ISO-8859-1 like {@link Properties#load}
+   */
+  HttpPropertiesSource(URL url, String encoding) {
+    this.url = url;
+    this.encoding = encoding;
+  }
+
+  /**
+   * @return the properties, the same instance as last time if the server reported them unchanged
+   * @throws FileNotFoundException if the server responds with 404 or 410
+   * @throws IOException on any other error response
+   */
+  synchronized Properties fetch() throws IOException {
+
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setUseCaches(false);
+    connection.setRequestProperty("Accept-Encoding", "gzip");
+
+    if (cached != null && etag != null)
+      connection.setRequestProperty("If-None-Match", etag);
+
+    if (cached != null && lastModified != null)
+      connection.setRequestProperty("If-Modified-Since", lastModified);
+
+    int status = connection.getResponseCode();
+
+    if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+      drain(connection.getInputStream());
+      logger.debug(url + " not modified");
+      return cached;
+    }
+
+    if (status >= 400) {
+
+      drain(connection.getErrorStream());
+      cached = null;
+
+      if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE)
+        throw new FileNotFoundException(url + " not found");
+
+      throw new IOException("Unable to fetch " + url + ": HTTP " + status);
+    }
+
+    Properties props = new Properties();
+
+    try (InputStream body = body(connection)) {
+
+      if (encoding == null)
+        props.load(body);
+      else
+        props.load(new InputStreamReader(body, encoding));
+    }
+
+    etag = connection.getHeaderField("ETag");
+    lastModified = connection.getHeaderField("Last-Modified");
+    cached = props;
+
+    return props;
+  }
+
+  private InputStream body(HttpURLConnection connection) throws IOException {
+
+    InputStream in = connection.getInputStream();
+    return "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(in) : in;
+  }
+
+  /**
+   * Reads what is left of a body so the connection can go back to the keep-alive cache
+   */
+  private void drain(InputStream in) throws IOException {
+
+    if (in == null)
+      return;
+
+    try (InputStream body = in) {
+
+      byte[] buffer = new byte[1024];
+
+      while (body.read(buffer) >= 0) {
+      }
+    }
+  }
+
+}
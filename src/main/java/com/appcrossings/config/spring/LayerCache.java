@@ -0,0 +1,95 @@
+package com.appcrossings.config.spring;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+/**
+ * Process wide cache of parsed config files, keyed by URL
+ */
+final class LayerCache {
+
+  private static final class Entry {
+
+    private HttpPropertiesSource http;
+
+    private long lastModified;
+
+    private Properties props;
+  }
+
+  static final int MAX_ENTRIES = 256;
+
+  private static final Map<String, Entry> entries =
+      Collections.synchronizedMap(new LinkedHashMap<String, LayerCache.Entry>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LayerCache.Entry> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      });
+
+  private LayerCache() {}
+
+  /**
+   * @param resource
+   * @param encoding of the file, null for ISO-8859-1
+   * @return the file's properties, the cached instance if it is unchanged
+   * @throws java.io.FileNotFoundException if the file doesn't exist
+   */
+  static Properties load(Resource resource, String encoding) throws IOException {
+
+    URL url = resource.getURL();
+    Entry entry = entries.computeIfAbsent(url + "|" + encoding, k -> new Entry());
+
+    synchronized (entry) {
+
+      if (resource instanceof UrlResource && url.getProtocol().startsWith("http")) {
+
+        if (entry.http == null)
+          entry.http = new HttpPropertiesSource(url, encoding);
+
+        return entry.props = entry.http.fetch();
+      }
+
+      long lastModified = lastModified(resource);
+
+      if (entry.props != null && lastModified != 0 && lastModified == entry.lastModified)
+        return entry.props;
+
+      Properties props = new Properties();
+      PropertiesLoaderUtils.fillProperties(props, new EncodedResource(resource, encoding));
+
+      // keep the cached instance if the content is the same, e.g. when the time isn't available
+      if (entry.props == null
+          || ConfigSnapshot.fingerprint(props) != ConfigSnapshot.fingerprint(entry.props))
+        entry.props = props;
+
+      entry.lastModified = lastModified;
+      return entry.props;
+    }
+  }
+
+  static int size() {
+    return entries.size();
+  }
+
+  private static long lastModified(Resource resource) {
+
+    try {
+      return resource.lastModified();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+}
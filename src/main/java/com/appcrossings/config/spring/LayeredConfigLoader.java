@@ -0,0 +1,245 @@
+package com.appcrossings.config.spring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Fetches config layers concurrently and merges them in precedence order
+ */
+final class LayeredConfigLoader {
+
+  /**
+   * A named source of properties
+   */
+  static final class Layer {
+
+    private final boolean conditional;
+
+    private final String name;
+
+    private final Callable<Properties> source;
+
+    Layer(String name, Callable<Properties> source) {
+      this(name, source, false);
+    }
+
+    /**
+     * @param name
+     * @param source
+     * @param conditional whether the source returns the same instance while it is unchanged
+     */
+    Layer(String name, Callable<Properties> source, boolean conditional) {
+      this.name = name;
+      this.source = source;
+      this.conditional = conditional;
+    }
+
+    String getName() {
+      return name;
+    }
+  }
+
+  /**
+   * Merged properties and whether they are unchanged since the previous load
+   */
+  static final class Result {
+
+    private final Properties props;
+
+    private final boolean unchanged;
+
+    private Result(Properties props, boolean unchanged) {
+      this.props = props;
+      this.unchanged = unchanged;
+    }
+
+    Properties getProperties() {
+      return props;
+    }
+
+    boolean isUnchanged() {
+      return unchanged;
+    }
+  }
+
+  private static final class Timed {
+
+    private long fingerprint;
+
+    private Layer layer;
+
+    private long millis;
+
+    private Properties props;
+  }
+
+  private static final Log logger = LogFactory.getLog(LayeredConfigLoader.class);
+
+  private static final AtomicInteger threads = new AtomicInteger();
+
+  private ExecutorService executor;
+
+  private boolean loaded;
+
+  private Properties merged;
+
+  private volatile ConfigMetrics metrics = ConfigMetrics.NONE;
+
+  private List<Timed> previous = new ArrayList<>();
+
+  /**
+   * @param layers in ascending order of precedence
+   * @return the merged properties, the ones of the previous load if no layer changed
+   * @throws Exception the first exception thrown by any layer
+   */
+  synchronized Result load(List<Layer> layers) throws Exception {
+
+    long start = System.nanoTime();
+    List<Timed> results = new ArrayList<>(layers.size());
+
+    if (layers.size() == 1) {
+      results.add(fetch(layers.get(0)));
+    } else {
+
+      List<Future<Timed>> futures = new ArrayList<>(layers.size());
+
+      for (Layer layer : layers) {
+        futures.add(executor().submit(() -> fetch(layer)));
+      }
+
+      try {
+        for (Future<Timed> future : futures) {
+          results.add(future.get());
+        }
+      } catch (ExecutionException e) {
+        for (Future<Timed> future : futures) {
+          future.cancel(true);
+        }
+        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+      }
+    }
+
+    if (unchanged(results)) {
+      log(layers, results, merged, (System.nanoTime() - start) / 1000000);
+      return new Result(merged, true);
+    }
+
+    Properties merged;
+
+    // a single layer is used as is, the snapshot copies it into its own store anyway
+    if (results.size() == 1) {
+      merged = results.get(0).props;
+    } else {
+
+      merged = new Properties();
+
+      for (Timed result : results) {
+        merged.putAll(result.props);
+      }
+    }
+
+    this.merged = merged;
+    this.previous = results;
+
+    log(layers, results, merged, (System.nanoTime() - start) / 1000000);
+    return new Result(merged, false);
+  }
+
+  void setMetrics(ConfigMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  synchronized void shutdown() {
+
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  synchronized ExecutorService executor() {
+
+    if (executor == null) {
+      executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "configrd-loader-" + threads.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    return executor;
+  }
+
+  private Timed fetch(Layer layer) throws Exception {
+
+    long start = System.nanoTime();
+
+    Timed timed = new Timed();
+    timed.layer = layer;
+    timed.props = layer.source.call();
+
+    long nanos = System.nanoTime() - start;
+    timed.millis = nanos / 1000000;
+    metrics.layerFetched(layer.name, nanos);
+
+    if (timed.props == null)
+      timed.props = new Properties();
+
+    return timed;
+  }
+
+  private boolean unchanged(List<Timed> results) {
+
+    boolean unchanged = merged != null && previous.size() == results.size();
+
+    for (int i = 0; i < results.size(); i++) {
+
+      Timed result = results.get(i);
+
+      if (!result.layer.conditional)
+        result.fingerprint = ConfigSnapshot.fingerprint(result.props);
+
+      if (unchanged) {
+
+        Timed last = previous.get(i);
+        unchanged = result.layer.name.equals(last.layer.name) && (result.layer.conditional
+            ? result.props == last.props : result.fingerprint == last.fingerprint);
+      }
+    }
+
+    return unchanged;
+  }
+
+  private void log(List<Layer> layers, List<Timed> results, Properties merged, long millis) {
+
+    boolean first = !loaded;
+    loaded = true;
+
+    if (first ? !logger.isInfoEnabled() : !logger.isDebugEnabled())
+      return;
+
+    StringBuilder summary = new StringBuilder("Loaded ").append(merged.size())
+        .append(" properties in ").append(millis).append("ms from ").append(layers.size())
+        .append(" layer(s):");
+
+    for (int i = 0; i < layers.size(); i++) {
+      summary.append(" [").append(layers.get(i).name).append(": ").append(results.get(i).millis)
+          .append("ms, ").append(results.get(i).props.size()).append(" keys]");
+    }
+
+    if (first)
+      logger.info(summary);
+    else
+      logger.debug(summary);
+  }
+
+}
@@ -0,0 +1,371 @@
+package com.appcrossings.config.spring;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.util.PropertyPlaceholderHelper.PlaceholderResolver;
+
+/**
+ * A placeholder expression parsed once into literal parts and key references
+ */
+public final class PlaceholderTemplate {
+
+  /**
+   * Compiles templates for one placeholder syntax
+   */
+  public static final class Compiler {
+
+    private static final int MAX_VALUES = 1024;
+
+    private final String prefix;
+
+    private final String separator;
+
+    private final String simplePrefix;
+
+    private final String suffix;
+
+    private final ConcurrentMap<String, PlaceholderTemplate> values = new ConcurrentHashMap<>();
+
+    public Compiler(String prefix, String suffix, String separator) {
+      this.prefix = prefix;
+      this.suffix = suffix;
+      this.separator = separator;
+
+      String simple = "}".equals(suffix) ? "{" : "]".equals(suffix) ? "[" : ")".equals(suffix) ? "("
+          : null;
+      this.simplePrefix = simple != null && prefix.endsWith(simple) ? simple : prefix;
+    }
+
+    /**
+     * @param expression
+     * @return the compiled expression
+     */
+    public PlaceholderTemplate compile(String expression) {
+      return new PlaceholderTemplate(this, parse(expression, 0, expression.length()));
+    }
+
+    /**
+     * Compiles the value of a property, cached by key and value
+     *
+     * @param key
+     * @param value
+     * @return
+     * @throws IllegalArgumentException if the value refers to its own key
+     */
+    PlaceholderTemplate compileValue(String key, String value) {
+
+      String id = key + '=' + value;
+      PlaceholderTemplate template = values.get(id);
+
+      if (template != null)
+        return template;
+
+      template = compile(value);
+
+      if (template.refersTo(key))
+        throw new IllegalArgumentException(
+            "Circular placeholder reference '" + key + "' in property definitions");
+
+      if (values.size() >= MAX_VALUES)
+        values.clear();
+
+      values.put(id, template);
+      return template;
+    }
+
+    boolean hasPlaceholder(String value) {
+      return value.indexOf(prefix) >= 0;
+    }
+
+    private Part[] parse(String text, int from, int to) {
+
+      List<Part> parts = new ArrayList<>(1);
+      int literal = from;
+      int start = text.indexOf(prefix, from);
+
+      while (start >= 0 && start < to) {
+
+        int body = start + prefix.length();
+        int end = findEnd(text, body, to);
+
+        if (end < 0)
+          break;
+
+        if (start > literal)
+          parts.add(new Literal(text.substring(literal, start)));
+
+        int sep = findSeparator(text, body, end);
+
+        Part[] key = parse(text, body, sep < 0 ? end : sep);
+        Part[] defaults = sep < 0 ? null : parse(text, sep + separator.length(), end);
+        parts.add(new Ref(text, key, defaults));
+
+        literal = end + suffix.length();
+        start = text.indexOf(prefix, literal);
+      }
+
+      if (to > literal)
+        parts.add(new Literal(text.substring(literal, to)));
+
+      return parts.toArray(new Part[parts.size()]);
+    }
+
+    private int findEnd(String text, int from, int to) {
+
+      int index = from;
+      int nested = 0;
+
+      while (index < to) {
+
+        if (text.startsWith(suffix, index)) {
+
+          if (nested == 0)
+            return index;
+
+          nested--;
+          index += suffix.length();
+
+        } else if (text.startsWith(simplePrefix, index)) {
+          nested++;
+          index += simplePrefix.length();
+        } else {
+          index++;
+        }
+      }
+
+      return -1;
+    }
+
+    private int findSeparator(String text, int from, int to) {
+
+      if (separator == null)
+        return -1;
+
+      int index = from;
+
+      while (index < to) {
+
+        if (text.startsWith(prefix, index)) {
+
+          int end = findEnd(text, index + prefix.length(), to);
+
+          if (end < 0)
+            return -1;
+
+          index = end + suffix.length();
+
+        } else if (text.startsWith(separator, index)) {
+          return index;
+        } else {
+          index++;
+        }
+      }
+
+      return -1;
+    }
+  }
+
+  private abstract static class Part {
+
+    abstract void collect(Collection<String> keys);
+
+    abstract String resolve(Compiler compiler, PlaceholderResolver resolver,
+        Collection<String> keys, Visit visit);
+
+    abstract boolean refersTo(String key);
+  }
+
+  private static final class Literal extends Part {
+
+    private final String text;
+
+    private Literal(String text) {
+      this.text = text;
+    }
+
+    @Override
+    void collect(Collection<String> keys) {}
+
+    @Override
+    String resolve(Compiler compiler, PlaceholderResolver resolver, Collection<String> keys,
+        Visit visit) {
+      return text;
+    }
+
+    @Override
+    boolean refersTo(String key) {
+      return false;
+    }
+  }
+
+  private static final class Ref extends Part {
+
+    private final Part[] defaults;
+
+    private final String expression;
+
+    private final Part[] key;
+
+    private final String literalKey;
+
+    private Ref(String expression, Part[] key, Part[] defaults) {
+      this.expression = expression;
+      this.key = key;
+      this.defaults = defaults;
+      this.literalKey = key.length == 1 && key[0] instanceof Literal ? ((Literal) key[0]).text
+          : key.length == 0 ? "" : null;
+    }
+
+    @Override
+    void collect(Collection<String> keys) {
+
+      if (literalKey != null)
+        keys.add(literalKey);
+
+      PlaceholderTemplate.collect(key, keys);
+
+      if (defaults != null)
+        PlaceholderTemplate.collect(defaults, keys);
+    }
+
+    @Override
+    String resolve(Compiler compiler, PlaceholderResolver resolver, Collection<String> keys,
+        Visit visit) {
+
+      String name = literalKey != null ? literalKey : join(key, compiler, resolver, keys, visit);
+
+      if (keys != null)
+        keys.add(name);
+
+      String value = resolver.resolvePlaceholder(name);
+
+      if (value == null && defaults != null)
+        return join(defaults, compiler, resolver, keys, visit);
+
+      if (value == null)
+        throw new IllegalArgumentException(
+            "Could not resolve placeholder '" + name + "' in value \"" + expression + "\"");
+
+      if (!compiler.hasPlaceholder(value))
+        return value;
+
+      for (Visit v = visit; v != null; v = v.parent) {
+        if (v.key.equals(name))
+          throw new IllegalArgumentException(
+              "Circular placeholder reference '" + name + "' in property definitions");
+      }
+
+      return join(compiler.compileValue(name, value).parts, compiler, resolver, keys,
+          new Visit(name, visit));
+    }
+
+    @Override
+    boolean refersTo(String key) {
+      return key.equals(literalKey) || PlaceholderTemplate.refersTo(this.key, key)
+          || (defaults != null && PlaceholderTemplate.refersTo(defaults, key));
+    }
+  }
+
+  private static final class Visit {
+
+    private final String key;
+
+    private final Visit parent;
+
+    private Visit(String key, Visit parent) {
+      this.key = key;
+      this.parent = parent;
+    }
+  }
+
+  private final Compiler compiler;
+
+  private final Part[] parts;
+
+  private final Set<String> references;
+
+  private PlaceholderTemplate(Compiler compiler, Part[] parts) {
+    this.compiler = compiler;
+    this.parts = parts;
+
+    Set<String> references = new HashSet<>();
+    collect(parts, references);
+    this.references = Collections.unmodifiableSet(references);
+  }
+
+  /**
+   * @return the keys the expression refers to, in any placeholder or default, whether or not a
+   *         resolution would reach them. Keys which are only known once a nested placeholder or a
+   *         property value is resolved are not included.
+   */
+  public Set<String> getReferences() {
+    return references;
+  }
+
+  /**
+   * @param resolver
+   * @return the resolved expression
+   * @throws IllegalArgumentException if a key without default can't be resolved or the keys form
+   *         a cycle
+   */
+  public String resolve(PlaceholderResolver resolver) {
+    return resolve(resolver, null);
+  }
+
+  /**
+   * @param resolver
+   * @param keys collects every key looked up, including nested keys and keys in property values
+   * @return the resolved expression
+   * @throws IllegalArgumentException if a key without default can't be resolved or the keys form
+   *         a cycle
+   */
+  public String resolve(PlaceholderResolver resolver, Collection<String> keys) {
+    return join(parts, compiler, resolver, keys, null);
+  }
+
+  boolean refersTo(String key) {
+    return refersTo(parts, key);
+  }
+
+  private static String join(Part[] parts, Compiler compiler, PlaceholderResolver resolver,
+      Collection<String> keys, Visit visit) {
+
+    if (parts.length == 0)
+      return "";
+
+    if (parts.length == 1)
+      return parts[0].resolve(compiler, resolver, keys, visit);
+
+    StringBuilder result = new StringBuilder();
+
+    for (Part part : parts) {
+      result.append(part.resolve(compiler, resolver, keys, visit));
+    }
+
+    return result.toString();
+  }
+
+  private static void collect(Part[] parts, Collection<String> keys) {
+
+    for (Part part : parts) {
+      part.collect(keys);
+    }
+  }
+
+  private static boolean refersTo(Part[] parts, String key) {
+
+    for (Part part : parts) {
+      if (part.refersTo(key))
+        return true;
+    }
+
+    return false;
+  }
+
+}
@@ -0,0 +1,91 @@
+package com.appcrossings.config.spring;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.jasypt.encryption.pbe.PooledPBEStringEncryptor;
+
+/**
+ * Decrypts ENC(...) values on first access and caches the plaintext
+ */
+final class PropertyDecryptor {
+
+  private static final String PREFIX = "ENC(";
+
+  private static final String SUFFIX = ")";
+
+  private volatile PBEStringEncryptor encryptor;
+
+  private final ConcurrentMap<String, String> plaintexts = new ConcurrentHashMap<>();
+
+  static boolean isEncrypted(String value) {
+    return value != null && value.startsWith(PREFIX) && value.endsWith(SUFFIX);
+  }
+
+  /**
+   * @param value
+   * @return the plaintext if the value is encrypted and an encryptor is configured, otherwise the
+   *         value itself
+   */
+  String decrypt(String value) {
+
+    PBEStringEncryptor encryptor = this.encryptor;
+
+    if (encryptor == null || !isEncrypted(value))
+      return value;
+
+    String plaintext = plaintexts.get(value);
+
+    if (plaintext == null) {
+      plaintext =
+          encryptor.decrypt(value.substring(PREFIX.length(), value.length() - SUFFIX.length()));
+      plaintexts.putIfAbsent(value, plaintext);
+    }
+
+    return plaintext;
+  }
+
+  boolean isEnabled() {
+    return encryptor != null;
+  }
+
+  /**
+   * Drops cached plaintexts whose ciphertext is no longer among the given values
+   * 
+   * @param values
+   */
+  void retain(Collection<String> values) {
+
+    if (plaintexts.isEmpty())
+      return;
+
+    Set<String> live = new HashSet<>(values);
+    plaintexts.keySet().retainAll(live);
+  }
+
+  int size() {
+    return plaintexts.size();
+  }
+
+  void setEncryptor(PBEStringEncryptor encryptor) {
+    this.encryptor = encryptor;
+    plaintexts.clear();
+  }
+
+  /**
+   * Sets up a pool of PBEWithMD5AndDES encryptors, one per available processor
+   * 
+   * @param password
+   */
+  void setPassword(String password) {
+
+    PooledPBEStringEncryptor pooled = new PooledPBEStringEncryptor();
+    pooled.setPoolSize(Runtime.getRuntime().availableProcessors());
+    pooled.setPassword(password);
+    setEncryptor(pooled);
+  }
+
+}
@@ -0,0 +1,304 @@
+package com.appcrossings.config.spring;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable string properties sorted by key
+ */
+final class PropertyStore {
+
+  /**
+   * The properties of a key range as a read-only map, values mapped on access
+   */
+  private final class Range extends AbstractMap<String, String> {
+
+    private final int from;
+
+    private final UnaryOperator<String> mapper;
+
+    private final int to;
+
+    private Range(int from, int to, UnaryOperator<String> mapper) {
+      this.from = from;
+      this.to = to;
+      this.mapper = mapper;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      int i = key instanceof String ? indexOf((String) key) : -1;
+      return i >= from && i < to;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+
+      return new AbstractSet<Map.Entry<String, String>>() {
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+          return new Cursor<Map.Entry<String, String>>(from, to) {
+
+            @Override
+            Map.Entry<String, String> at(int i) {
+              return new SimpleImmutableEntry<>(keys[i], mapper.apply(values[i]));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return to - from;
+        }
+      };
+    }
+
+    @Override
+    public String get(Object key) {
+      return containsKey(key) ? mapper.apply(values[indexOf((String) key)]) : null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+      return new Keys(from, to);
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+
+  private abstract static class Cursor<T> implements Iterator<T> {
+
+    private int next;
+
+    private final int to;
+
+    private Cursor(int from, int to) {
+      this.next = from;
+      this.to = to;
+    }
+
+    abstract T at(int i);
+
+    @Override
+    public boolean hasNext() {
+      return next < to;
+    }
+
+    @Override
+    public T next() {
+
+      if (next >= to)
+        throw new NoSuchElementException();
+
+      return at(next++);
+    }
+  }
+
+  private final class Keys extends AbstractSet<String> {
+
+    private final int from;
+
+    private final int to;
+
+    private Keys(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean contains(Object key) {
+      int i = key instanceof String ? indexOf((String) key) : -1;
+      return i >= from && i < to;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Cursor<String>(from, to) {
+
+        @Override
+        String at(int i) {
+          return keys[i];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+
+  static final PropertyStore EMPTY = new PropertyStore(new String[0], new String[0]);
+
+  private final int[] index;
+
+  private final String[] keys;
+
+  private final String[] values;
+
+  private PropertyStore(String[] keys, String[] values) {
+    this.keys = keys;
+    this.values = values;
+    this.index = new int[Integer.highestOneBit(Math.max(keys.length, 1) * 2 - 1) << 1];
+
+    int mask = index.length - 1;
+
+    for (int i = 0; i < keys.length; i++) {
+
+      int slot = spread(keys[i].hashCode()) & mask;
+
+      while (index[slot] != 0)
+        slot = (slot + 1) & mask;
+
+      index[slot] = i + 1;
+    }
+  }
+
+  /**
+   * Copies the string entries of the properties, non-string keys or values are ignored as they are
+   * by {@link Properties#stringPropertyNames()}
+   *
+   * @param props
+   * @return
+   */
+  static PropertyStore of(Properties props) {
+
+    String[] keys = new String[props.size()];
+    int size = 0;
+
+    synchronized (props) {
+      for (Map.Entry<Object, Object> e : props.entrySet()) {
+        if (e.getKey() instanceof String && e.getValue() instanceof String)
+          keys[size++] = ((String) e.getKey()).intern();
+      }
+    }
+
+    keys = size == keys.length ? keys : Arrays.copyOf(keys, size);
+    Arrays.sort(keys);
+
+    String[] values = new String[size];
+
+    for (int i = 0; i < size; i++) {
+      values[i] = (String) props.get(keys[i]);
+    }
+
+    return new PropertyStore(keys, values);
+  }
+
+  String get(String key) {
+    int i = indexOf(key);
+    return i < 0 ? null : values[i];
+  }
+
+  boolean containsKey(String key) {
+    return indexOf(key) >= 0;
+  }
+
+  String keyAt(int i) {
+    return keys[i];
+  }
+
+  String valueAt(int i) {
+    return values[i];
+  }
+
+  int size() {
+    return keys.length;
+  }
+
+  /**
+   * @return a copy of the keys in ascending order
+   */
+  String[] keys() {
+    return keys.clone();
+  }
+
+  Set<String> keySet() {
+    return new Keys(0, keys.length);
+  }
+
+  /**
+   * @param prefix
+   * @param mapper applied to each value on access
+   * @return the properties whose keys start with the prefix, in ascending key order
+   */
+  Map<String, String> withPrefix(String prefix, UnaryOperator<String> mapper) {
+
+    int from = lowerBound(prefix);
+    int low = from;
+    int high = keys.length;
+
+    while (low < high) {
+
+      int mid = (low + high) >>> 1;
+
+      if (keys[mid].startsWith(prefix))
+        low = mid + 1;
+      else
+        high = mid;
+    }
+
+    return new Range(from, low, mapper);
+  }
+
+  /**
+   * @return the values, in key order
+   */
+  Collection<String> values() {
+    return Arrays.asList(values);
+  }
+
+  private int indexOf(String key) {
+
+    int mask = index.length - 1;
+    int slot = spread(key.hashCode()) & mask;
+    int i;
+
+    while ((i = index[slot]) != 0) {
+
+      String candidate = keys[i - 1];
+
+      if (candidate == key || candidate.equals(key))
+        return i - 1;
+
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  private int lowerBound(String key) {
+
+    int low = 0;
+    int high = keys.length;
+
+    while (low < high) {
+
+      int mid = (low + high) >>> 1;
+
+      if (keys[mid].compareTo(key) < 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+
+    return low;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+}
@@ -0,0 +1,144 @@
+package com.appcrossings.config.spring;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Runs the periodic config refresh on a single daemon thread
+ */
+final class RefreshScheduler {
+
+  private static final Log logger = LogFactory.getLog(RefreshScheduler.class);
+
+  private static final long MIN_BACKOFF_MILLIS = 1000;
+
+  private final ScheduledExecutorService executor;
+
+  private int failures;
+
+  private final long jitterMillis;
+
+  private final long maxBackoffMillis;
+
+  private ScheduledFuture<?> periodic;
+
+  private final long periodMillis;
+
+  private volatile boolean running;
+
+  private final Runnable task;
+
+  private ScheduledFuture<?> triggered;
+
+  RefreshScheduler(Runnable task, long periodMillis, long jitterMillis, long maxBackoffMillis) {
+    this.task = task;
+    this.periodMillis = periodMillis;
+    this.jitterMillis = jitterMillis;
+    this.maxBackoffMillis = Math.max(periodMillis, maxBackoffMillis);
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "configrd-refresh");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  boolean isRunning() {
+    return running;
+  }
+
+  synchronized void start() {
+
+    if (running)
+      return;
+
+    running = true;
+
+    if (periodMillis > 0)
+      schedule(periodMillis);
+  }
+
+  synchronized void stop() {
+
+    running = false;
+    executor.shutdownNow();
+
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Run the task after the given delay instead of waiting for the next period. A pending triggered
+   * run is replaced, so a burst of triggers within the delay results in a single run.
+   * 
+   * @param delayMillis
+   */
+  synchronized void trigger(long delayMillis) {
+
+    if (!running)
+      return;
+
+    if (triggered != null)
+      triggered.cancel(false);
+
+    triggered = executor.schedule(() -> run(false), delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void run(boolean scheduled) {
+
+    long delay = periodMillis;
+
+    try {
+
+      task.run();
+      failures = 0;
+
+    } catch (Exception e) {
+
+      failures++;
+      delay = backoff();
+      logger.error("Error refreshing configs, retrying in " + delay + "ms", e);
+
+    } finally {
+      if (delay > 0)
+        reschedule(scheduled, delay);
+    }
+  }
+
+  /**
+   * Continues the periodic chain after a periodic run. After a triggered run the pending periodic
+   * run is replaced, the single threaded executor guarantees it hasn't started, so there is still
+   * only one chain.
+   */
+  private synchronized void reschedule(boolean scheduled, long delayMillis) {
+
+    if (scheduled || (periodic != null && periodic.cancel(false)))
+      schedule(delayMillis);
+    else if (periodMillis <= 0)
+      trigger(delayMillis);
+  }
+
+  private long backoff() {
+
+    long base = periodMillis > 0 ? periodMillis : MIN_BACKOFF_MILLIS;
+    long delay = base << Math.min(failures, 20);
+    return maxBackoffMillis > 0 ? Math.min(delay, maxBackoffMillis) : delay;
+  }
+
+  private synchronized void schedule(long delayMillis) {
+
+    if (!running)
+      return;
+
+    long jitter = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0;
+    periodic = executor.schedule(() -> run(true), delayMillis + jitter, TimeUnit.MILLISECONDS);
+  }
+
+}
@@ -0,0 +1,25 @@
+package com.appcrossings.config.spring;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.annotation.ScopedProxyMode;
+
+/**
+ * Puts a bean in the {@link ConfigRefreshScope}
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Scope(ConfigRefreshScope.NAME)
+@Documented
+public @interface RefreshScope {
+
+  /**
+   * @see Scope#proxyMode()
+   */
+  ScopedProxyMode proxyMode() default ScopedProxyMode.TARGET_CLASS;
+
+}
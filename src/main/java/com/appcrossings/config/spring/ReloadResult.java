@@ -0,0 +1,60 @@
+package com.appcrossings.config.spring;
+
+/**
+ * The outcome of a single reload
+ */
+public final class ReloadResult {
+
+  public enum Status {
+    /** The source was unchanged, nothing was diffed or injected */
+    UNCHANGED,
+    /** A new snapshot was published and the affected beans re-injected */
+    APPLIED,
+    /** A new value failed to resolve or convert, the last-known-good snapshot was kept */
+    REJECTED
+  }
+
+  private final int changedKeys;
+
+  private final int injected;
+
+  private final Status status;
+
+  private final long version;
+
+  ReloadResult(Status status, long version, int changedKeys, int injected) {
+    this.status = status;
+    this.version = version;
+    this.changedKeys = changedKeys;
+    this.injected = injected;
+  }
+
+  public int getChangedKeys() {
+    return changedKeys;
+  }
+
+  /**
+   * @return the number of injection points written by the reload
+   */
+  public int getInjected() {
+    return injected;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * @return the version of the snapshot which was loaded
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public String toString() {
+    return "ReloadResult [status=" + status + ", version=" + version + ", changedKeys="
+        + changedKeys + ", injected=" + injected + "]";
+  }
+
+}
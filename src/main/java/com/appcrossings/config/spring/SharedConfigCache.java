@@ -0,0 +1,93 @@
+package com.appcrossings.config.spring;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Process wide cache of loaded config shared between configurers
+ */
+final class SharedConfigCache {
+
+  static final class Entry {
+
+    private final String key;
+
+    private long loaded;
+
+    private int references;
+
+    private ConfigSnapshot snapshot;
+
+    private Entry(String key) {
+      this.key = key;
+    }
+
+    /**
+     * @param fetch loads the properties when the cached ones are missing or expired
+     * @param ttl in milliseconds
+     * @return the shared snapshot, its version counts the changes seen by the entry
+     */
+    synchronized ConfigSnapshot get(Supplier<Properties> fetch, long ttl) {
+
+      long now = System.nanoTime();
+
+      if (snapshot != null && now - loaded < TimeUnit.MILLISECONDS.toNanos(ttl))
+        return snapshot;
+
+      Properties props = fetch.get();
+
+      if (snapshot == null || ConfigSnapshot.fingerprint(props) != snapshot.getFingerprint())
+        snapshot = ConfigSnapshot.of(snapshot == null ? 1 : snapshot.getVersion() + 1, props);
+
+      loaded = now;
+      return snapshot;
+    }
+
+    String getKey() {
+      return key;
+    }
+
+    synchronized int getReferences() {
+      return references;
+    }
+  }
+
+  private static final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private SharedConfigCache() {}
+
+  static Entry acquire(String key) {
+
+    while (true) {
+
+      Entry entry = entries.computeIfAbsent(key, Entry::new);
+
+      synchronized (entry) {
+
+        // lost a race with the last release, which already removed the entry
+        if (entries.get(key) != entry)
+          continue;
+
+        entry.references++;
+        return entry;
+      }
+    }
+  }
+
+  static void release(Entry entry) {
+
+    synchronized (entry) {
+
+      if (--entry.references == 0)
+        entries.remove(entry.key, entry);
+    }
+  }
+
+  static int size() {
+    return entries.size();
+  }
+
+}
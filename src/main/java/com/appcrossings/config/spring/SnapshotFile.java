@@ -0,0 +1,143 @@
+package com.appcrossings.config.spring;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Persists a snapshot to a local file so that startup can be served without the config source
+ */
+final class SnapshotFile {
+
+  private static final short FORMAT = 1;
+
+  private static final int HEADER = 4 + 2 + 8 + 4;
+
+  private static final int MAGIC = 0x43464753;
+
+  private final Path path;
+
+  SnapshotFile(Path path) {
+    this.path = path;
+  }
+
+  boolean exists() {
+    return Files.isRegularFile(path);
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  ConfigSnapshot read() throws IOException {
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+      long size = channel.size();
+
+      if (size < HEADER + 8)
+        throw new IOException("Snapshot file " + path + " is truncated");
+
+      if (size > Integer.MAX_VALUE)
+        throw new IOException("Snapshot file " + path + " is too large");
+
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+      CRC32 crc = new CRC32();
+      ByteBuffer payload = buffer.duplicate();
+      payload.limit((int) size - 8);
+      crc.update(payload);
+
+      if (crc.getValue() != buffer.getLong((int) size - 8))
+        throw new IOException("Snapshot file " + path + " is corrupt");
+
+      if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT)
+        throw new IOException("Snapshot file " + path + " has an unknown format");
+
+      long version = buffer.getLong();
+      int count = buffer.getInt();
+
+      if (count < 0)
+        throw new IOException("Snapshot file " + path + " has a negative entry count");
+
+      buffer.limit((int) size - 8);
+      Properties props = new Properties();
+
+      for (int i = 0; i < count; i++) {
+        props.put(readString(buffer), readString(buffer));
+      }
+
+      if (buffer.hasRemaining())
+        throw new IOException("Snapshot file " + path + " has trailing data");
+
+      return ConfigSnapshot.of(version, props);
+    }
+  }
+
+  void write(ConfigSnapshot snapshot) throws IOException {
+
+    int size = HEADER + 8;
+    byte[][] entries = new byte[snapshot.size() * 2][];
+    int i = 0;
+
+    for (String key : snapshot.getPropertyNames()) {
+      entries[i] = key.getBytes(StandardCharsets.UTF_8);
+      entries[i + 1] = snapshot.getRawProperty(key).getBytes(StandardCharsets.UTF_8);
+      size += 8 + entries[i].length + entries[i + 1].length;
+      i += 2;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(MAGIC).putShort(FORMAT).putLong(snapshot.getVersion()).putInt(snapshot.size());
+
+    for (byte[] entry : entries) {
+      buffer.putInt(entry.length).put(entry);
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, buffer.position());
+    buffer.putLong(crc.getValue());
+    buffer.flip();
+
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+
+    try {
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private String readString(ByteBuffer buffer) throws IOException {
+
+    if (buffer.remaining() < 4)
+      throw new IOException("Snapshot file " + path + " is truncated");
+
+    int length = buffer.getInt();
+
+    if (length < 0 || length > buffer.remaining())
+      throw new IOException("Snapshot file " + path + " has an invalid entry length " + length);
+
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
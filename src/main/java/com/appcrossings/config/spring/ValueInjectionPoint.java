@@ -0,0 +1,194 @@
+package com.appcrossings.config.spring;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collections;
+import java.util.Set;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * A single {@code @Value} annotated member of a bean instance
+ */
+abstract class ValueInjectionPoint {
+
+  static class FieldInjectionPoint extends ValueInjectionPoint {
+
+    private final Field field;
+
+    private final MethodHandle getter;
+
+    private final MethodHandle setter;
+
+    FieldInjectionPoint(String beanName, Object bean, Field field, String expression)
+        throws IllegalAccessException {
+      super(beanName, bean, expression, new TypeDescriptor(field));
+      this.field = field;
+
+      ReflectionUtils.makeAccessible(field);
+      this.getter = LOOKUP.unreflectGetter(field).bindTo(bean).asType(GETTER);
+      this.setter = LOOKUP.unreflectSetter(field).bindTo(bean).asType(SETTER);
+    }
+
+    Field getField() {
+      return field;
+    }
+
+    @Override
+    void inject(Object value) throws Exception {
+
+      try {
+
+        if (!ObjectUtils.nullSafeEquals(value, (Object) getter.invokeExact())) {
+          setter.invokeExact(value);
+        }
+
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return beanName + "." + field.getName();
+    }
+  }
+
+  static class MethodInjectionPoint extends ValueInjectionPoint {
+
+    private final Method method;
+
+    private final MethodHandle setter;
+
+    MethodInjectionPoint(String beanName, Object bean, Method method, String expression)
+        throws IllegalAccessException {
+      super(beanName, bean, expression, new TypeDescriptor(new MethodParameter(method, 0)));
+      this.method = method;
+
+      ReflectionUtils.makeAccessible(method);
+      this.setter = LOOKUP.unreflect(method).bindTo(bean).asType(SETTER);
+    }
+
+    MethodParameter getMethodParameter() {
+      return new MethodParameter(method, 0);
+    }
+
+    @Override
+    void inject(Object value) throws Exception {
+
+      try {
+        setter.invokeExact(value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return beanName + "." + method.getName() + "()";
+    }
+  }
+
+  private static final MethodType GETTER = MethodType.methodType(Object.class);
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final MethodType SETTER = MethodType.methodType(void.class, Object.class);
+
+  protected final Object bean;
+
+  protected final String beanName;
+
+  protected final String expression;
+
+  private Converter<Object, Object> converter;
+
+  private volatile Set<String> keys = Collections.emptySet();
+
+  private volatile String lastValue;
+
+  private PlaceholderTemplate template;
+
+  private final TypeDescriptor type;
+
+  ValueInjectionPoint(String beanName, Object bean, String expression, TypeDescriptor type) {
+    this.beanName = beanName;
+    this.bean = bean;
+    this.expression = expression;
+    this.type = type;
+  }
+
+  String getBeanName() {
+    return beanName;
+  }
+
+  String getExpression() {
+    return expression;
+  }
+
+  Set<String> getKeys() {
+    return keys;
+  }
+
+  void setKeys(Set<String> keys) {
+    this.keys = keys;
+  }
+
+  TypeDescriptor getType() {
+    return type;
+  }
+
+  void setConverter(Converter<Object, Object> converter) {
+    this.converter = converter;
+  }
+
+  PlaceholderTemplate getTemplate() {
+    return template;
+  }
+
+  void setTemplate(PlaceholderTemplate template) {
+    this.template = template;
+  }
+
+  /**
+   * @param value
+   * @return true if this is the same string which was injected last time
+   */
+  boolean isCurrent(String value) {
+    return value.equals(lastValue);
+  }
+
+  /**
+   * @param value the resolved expression, or the result of evaluating it as a SpEL expression
+   * @return the value converted to the member's type
+   */
+  Object convert(Object value) {
+    return converter.convert(value);
+  }
+
+  void apply(String value, Object converted) throws Exception {
+    inject(converted);
+    lastValue = value;
+  }
+
+  abstract void inject(Object value) throws Exception;
+
+  private static Exception rethrow(Throwable t) {
+
+    if (t instanceof Error)
+      throw (Error) t;
+
+    if (t instanceof Exception)
+      return (Exception) t;
+
+    return new UndeclaredThrowableException(t);
+  }
+
+}
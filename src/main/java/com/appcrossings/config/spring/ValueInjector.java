@@ -1,77 +1,717 @@
 package com.appcrossings.config.spring;
 
+import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.Properties;
-
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.scope.ScopedObject;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.ApplicationContext;
-import org.springframework.util.PropertyPlaceholderHelper;
+import org.springframework.beans.factory.config.BeanExpressionContext;
+import org.springframework.beans.factory.config.BeanExpressionResolver;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
+import com.appcrossings.config.spring.ValueInjectionPoint.FieldInjectionPoint;
+import com.appcrossings.config.spring.ValueInjectionPoint.MethodInjectionPoint;
+
+/**
+ * Records the {@code @Value} injection points of singleton beans and re-injects them on reload
+ */
+public class ValueInjector implements BeanPostProcessor {
+
+  /**
+   * The resolved and converted values of one reload, ready to be applied
+   */
+  public static final class Batch {
+
+    private final List<String> failures = new CopyOnWriteArrayList<>();
+
+    private final Map<ValueInjectionPoint, Set<String>> keys = new LinkedHashMap<>();
+
+    private final List<Pending> pending = new ArrayList<>();
+
+    private final ConfigSnapshot snapshot;
+
+    private final List<Runnable> writes = new ArrayList<>();
+
+    private Batch(ConfigSnapshot snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    /**
+     * Adds a write prepared outside the injector, applied along with the injection points
+     * 
+     * @param write
+     */
+    void defer(Runnable write) {
+      writes.add(write);
+    }
+
+    /**
+     * Records a failure prepared outside the injector, which invalidates the batch
+     * 
+     * @param failure
+     */
+    void fail(String failure) {
+      failures.add(failure);
+    }
+
+    public List<String> getFailures() {
+      return failures;
+    }
+
+    public boolean isValid() {
+      return failures.isEmpty();
+    }
+
+    public int size() {
+      return pending.size() + writes.size();
+    }
+  }
+
+  private static final class Pending {
+
+    private final Object converted;
+
+    private final ValueInjectionPoint point;
+
+    private final String value;
+
+    private Pending(ValueInjectionPoint point, String value, Object converted) {
+      this.point = point;
+      this.value = value;
+      this.converted = converted;
+    }
+  }
+
+  private static final Log logger = LogFactory.getLog(ValueInjector.class);
+
+  private static final TypeDescriptor STRING = TypeDescriptor.valueOf(String.class);
+
+  private final ConfigurableListableBeanFactory beanFactory;
+
+  private final Map<String, Set<ValueInjectionPoint>> dependents = new ConcurrentHashMap<>();
+
+  private final Map<String, Map<String, String>> definitions = new ConcurrentHashMap<>();
+
+  private final PlaceholderTemplate.Compiler compiler;
+
+  private boolean configFirst = true;
+
+  private volatile Environment environment;
+
+  private final BeanExpressionContext expressionContext;
+
+  private final List<ValueInjectionPoint> injectionPoints = new CopyOnWriteArrayList<>();
+
+  // type converters aren't thread-safe, and a custom one on the bean factory is shared by every
+  // point, so conversions through them are serialized; most values use the ConversionService
+  private final Object typeConverterLock = new Object();
+
+  private final AtomicLong failures = new AtomicLong();
+
+  private int parallelism;
+
+  private int parallelThreshold = 1000;
+
+  private ForkJoinPool pool;
+
+  private final String prefix;
+
+  private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+
+  public ValueInjector(ConfigurableListableBeanFactory beanFactory, String prefix, String suffix) {
+    this.beanFactory = beanFactory;
+    this.prefix = prefix;
+    this.compiler = new PlaceholderTemplate.Compiler(prefix, suffix, ":");
+    this.expressionContext = new BeanExpressionContext(beanFactory, null);
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName)
+      throws BeansException {
+
+    if (isSingleton(beanName) && !(bean instanceof ScopedObject)) {
+
+      for (ValueInjectionPoint point : findInjectionPoints(beanName, bean)) {
+
+        point.setConverter(converterFor(point));
+        point.setTemplate(compiler.compile(point.getExpression()));
+        injectionPoints.add(point);
+
+        Set<String> keys = new HashSet<>(point.getTemplate().getReferences());
+
+        try {
+          resolve(point, snapshot, keys);
+        } catch (Exception e) {
+          // unresolvable for now, every key it refers to is still indexed
+        }
+
+        index(point, keys);
+      }
+    }
+
+    return bean;
+  }
+
+  /**
+   * Re-inject every recorded injection point
+   * 
+   * @param snapshot
+   * @return true if the new values were applied, false if any of them failed
+   */
+  public boolean reloadBeans(ConfigSnapshot snapshot) {
+    return apply(prepare(snapshot, injectionPoints));
+  }
+
+  /**
+   * Re-inject only the injection points that resolved through one of the changed keys
+   * 
+   * @param snapshot
+   * @param changedKeys
+   * @return true if the new values were applied, false if any of them failed
+   */
+  public boolean reloadBeans(ConfigSnapshot snapshot, Set<String> changedKeys) {
+    return apply(prepare(snapshot, changedKeys));
+  }
+
+  /**
+   * Phase one of a reload. Resolves and converts the value of every injection point affected by
+   * the changed keys without touching any bean.
+   * 
+   * @param snapshot
+   * @param changedKeys
+   * @return
+   */
+  public Batch prepare(ConfigSnapshot snapshot, Set<String> changedKeys) {
+
+    Set<ValueInjectionPoint> affected = new LinkedHashSet<>();
+
+    for (String key : changedKeys) {
+      Set<ValueInjectionPoint> points = dependents.get(key);
+
+      if (points != null)
+        affected.addAll(points);
+    }
+
+    return prepare(snapshot, affected);
+  }
+
+  /**
+   * Phase two of a reload. Applies a batch prepared by {@link #prepare(ConfigSnapshot, Set)}, but
+   * only if every value in it was resolved and converted. A failed batch leaves all beans and the
+   * injector's last-known-good snapshot untouched.
+   * <p>
+   * If writing a value still fails, for example in a setter, the batch stops there and the points
+   * already written are re-injected with their values from the last-known-good snapshot.
+   * 
+   * @param batch
+   * @return true if the batch was applied
+   */
+  public boolean apply(Batch batch) {
+
+    if (!batch.isValid()) {
+      logger.error("Reload of config version " + batch.snapshot.getVersion() + " aborted, "
+          + batch.failures.size() + " value(s) failed: " + batch.failures);
+      return false;
+    }
+
+    Queue<ValueInjectionPoint> written = new ConcurrentLinkedQueue<>();
+
+    partitioned(batch.pending, p -> p.point.getBeanName(), part -> {
+
+      for (Pending pending : part) {
+
+        if (!batch.isValid())
+          break;
+
+        try {
+          pending.point.apply(pending.value, pending.converted);
+          written.add(pending.point);
+        } catch (Exception e) {
+          batch.fail(pending.point + ": " + e.getMessage());
+          logger.debug("Reload failure", e);
+        }
+      }
+
+      return null;
+    });
+
+    for (Runnable write : batch.writes) {
+
+      if (!batch.isValid())
+        break;
+
+      try {
+        write.run();
+      } catch (Exception e) {
+        batch.fail(write + ": " + e.getMessage());
+        logger.debug("Reload failure", e);
+      }
+    }
+
+    if (!batch.isValid()) {
+      failures.incrementAndGet();
+      logger.error("Reload of config version " + batch.snapshot.getVersion()
+          + " aborted while writing, rolling back " + written.size() + " value(s): "
+          + batch.failures);
+      rollback(written);
+      return false;
+    }
+
+    this.snapshot = batch.snapshot;
+
+    for (Map.Entry<ValueInjectionPoint, Set<String>> e : batch.keys.entrySet()) {
+      index(e.getKey(), e.getValue());
+    }
+
+    return true;
+  }
+
+  private void rollback(Collection<ValueInjectionPoint> written) {
+
+    Batch undo = prepare(snapshot, written);
+
+    for (Pending pending : undo.pending) {
+
+      try {
+        pending.point.apply(pending.value, pending.converted);
+      } catch (Exception e) {
+        logger.warn("Unable to roll back " + pending.point + ": " + e.getMessage());
+        logger.debug("Rollback failure", e);
+      }
+    }
+  }
+
+  /**
+   * Records the property values of bean definitions which contain placeholders, such as
+   * {@code <property name="x" value="${key}"/>}, so they can be re-injected through the property's
+   * setter on reload. Must be called before the placeholders are resolved in place.
+   */
+  public void recordBeanDefinitions() {
+
+    for (String beanName : beanFactory.getBeanDefinitionNames()) {
+
+      Map<String, String> expressions = new LinkedHashMap<>();
+
+      for (PropertyValue pv : beanFactory.getBeanDefinition(beanName).getPropertyValues()
+          .getPropertyValues()) {
+
+        Object value = pv.getValue();
+
+        if (value instanceof TypedStringValue)
+          value = ((TypedStringValue) value).getValue();
+
+        if (value instanceof String && ((String) value).contains(prefix))
+          expressions.put(pv.getName(), (String) value);
+      }
+
+      if (!expressions.isEmpty())
+        definitions.put(beanName, expressions);
+    }
+  }
+
+  public void setSnapshot(ConfigSnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * The Environment whose property sources placeholders also resolve against, as at startup. The
+   * configurer's own {@link ConfigrdPropertySource} is skipped, the snapshot being loaded takes its
+   * place.
+   * 
+   * @param environment
+   * @param configFirst whether the config takes precedence over the Environment, the configurer's
+   *        local override
+   */
+  public void setEnvironment(Environment environment, boolean configFirst) {
+    this.configFirst = configFirst;
+    this.environment = environment;
+  }
+
+  /**
+   * The number of threads to prepare and apply large reloads with. Values below 2, the default,
+   * keep reloads on the calling thread.
+   * 
+   * @param parallelism
+   */
+  public synchronized void setParallelism(int parallelism) {
+    shutdown();
+    this.parallelism = parallelism;
+  }
 
-public class ValueInjector {
+  /**
+   * The number of affected injection points from which a reload is split across threads, if
+   * parallelism is set. Defaults to 1000, below that the hand-off costs more than it saves.
+   * 
+   * @param parallelThreshold
+   */
+  public void setParallelThreshold(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  /**
+   * Stops the threads of a parallel injector, they are started again by the next large reload
+   */
+  public synchronized void shutdown() {
 
-  public ValueInjector(ApplicationContext context) {
-    this.context = context;
+    if (pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
   }
 
-  private final ApplicationContext context;
+  /**
+   * Finds the {@code @Value} fields and single argument setters of the bean's class hierarchy,
+   * including private and inherited members, and the setters of properties whose bean definition
+   * value contained placeholders. AOP proxies are unwrapped so the points write to the target
+   * instance.
+   * 
+   * @param beanName
+   * @param bean
+   * @return
+   */
+  protected List<ValueInjectionPoint> findInjectionPoints(String beanName, Object bean) {
+
+    List<ValueInjectionPoint> points = new ArrayList<>();
+
+    Object target = unwrap(bean);
+    Class<?> type = ClassUtils.getUserClass(target);
+
+    ReflectionUtils.doWithFields(type, f -> {
+
+      try {
+        points.add(new FieldInjectionPoint(beanName, target, f, f.getAnnotation(Value.class).value()));
+      } catch (IllegalAccessException e) {
+        logger.warn("Unable to access " + beanName + "." + f.getName() + ", it won't be reloaded");
+      }
 
-  public void reloadBeans(Properties props, String prefix, String suffix) {
+    }, f -> !Modifier.isStatic(f.getModifiers()) && !Modifier.isFinal(f.getModifiers())
+        && f.isAnnotationPresent(Value.class));
 
-    String[] beanNames = context.getBeanDefinitionNames();
+    for (Method m : ReflectionUtils.getUniqueDeclaredMethods(type)) {
 
-    PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper(prefix, suffix, ":", false);
+      Value value = AnnotationUtils.findAnnotation(m, Value.class);
 
-    for (String name : beanNames) {
+      if (value != null && !Modifier.isStatic(m.getModifiers()) && m.getName().startsWith("set")
+          && m.getParameterCount() == 1) {
 
-      Object o = context.getBean(name);
+        try {
+          points.add(new MethodInjectionPoint(beanName, target, m, value.value()));
+        } catch (IllegalAccessException e) {
+          logger
+              .warn("Unable to access " + beanName + "." + m.getName() + "(), it won't be reloaded");
+        }
+      }
+    }
 
-      if (o.getClass().equals(getClass()))
+    for (Map.Entry<String, String> e : definitions.getOrDefault(beanName, Collections.emptyMap())
+        .entrySet()) {
+
+      PropertyDescriptor property = BeanUtils.getPropertyDescriptor(type, e.getKey());
+
+      if (property == null || property.getWriteMethod() == null) {
+        logger.warn("No setter for " + beanName + "." + e.getKey() + ", it won't be reloaded");
         continue;
+      }
 
-      Field[] values = o.getClass().getFields();
+      try {
+        points.add(
+            new MethodInjectionPoint(beanName, target, property.getWriteMethod(), e.getValue()));
+      } catch (IllegalAccessException ex) {
+        logger.warn("Unable to access " + beanName + "." + property.getWriteMethod().getName()
+            + "(), it won't be reloaded");
+      }
+    }
 
-      for (Field f : values) {
+    return points;
+  }
 
-        if (!f.isAnnotationPresent(Value.class)) {
-          continue;
-        } else {
+  /**
+   * @return the number of injection points which failed to resolve or convert since startup
+   */
+  public long getFailureCount() {
+    return failures.get();
+  }
 
-          String key = f.getAnnotation(Value.class).value();
-          String value = helper.replacePlaceholders(key, props);
+  Set<ValueInjectionPoint> getDependents(String key) {
+    return dependents.getOrDefault(key, Collections.emptySet());
+  }
+
+  int size() {
+    return injectionPoints.size();
+  }
 
-          try {
+  private void index(ValueInjectionPoint point, Set<String> keys) {
 
-            if (!StringUtils.isEmpty(value) && !value.equals(f.get(o))) {
-              f.set(o, value);
-            }
-          } catch (Exception e) {
-            // nothing
-          }
+    for (String key : point.getKeys()) {
+      if (!keys.contains(key))
+        dependents.getOrDefault(key, Collections.emptySet()).remove(point);
+    }
+
+    for (String key : keys) {
+      dependents.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(point);
+    }
+
+    point.setKeys(keys);
+  }
+
+  private Batch prepare(ConfigSnapshot snapshot, Collection<ValueInjectionPoint> points) {
+
+    List<Batch> parts = partitioned(points, ValueInjectionPoint::getBeanName,
+        part -> prepare(snapshot, part, new Batch(snapshot)));
+
+    if (parts.size() == 1)
+      return parts.get(0);
+
+    Batch batch = new Batch(snapshot);
+
+    for (Batch part : parts) {
+      batch.failures.addAll(part.failures);
+      batch.keys.putAll(part.keys);
+      batch.pending.addAll(part.pending);
+    }
+
+    return batch;
+  }
+
+  private Batch prepare(ConfigSnapshot snapshot, List<ValueInjectionPoint> points, Batch batch) {
+
+    for (ValueInjectionPoint point : points) {
+
+      Set<String> keys = new HashSet<>(point.getTemplate().getReferences());
+      batch.keys.put(point, keys);
+
+      try {
+
+        String value = resolve(point, snapshot, keys);
+
+        if (!StringUtils.isEmpty(value) && !point.isCurrent(value)) {
+          batch.pending.add(new Pending(point, value, point.convert(evaluate(value))));
         }
+
+      } catch (Exception e) {
+        failures.incrementAndGet();
+        batch.failures.add(point + " from '" + point.getExpression() + "': " + e.getMessage());
+        logger.debug("Reload failure", e);
+      }
+    }
+
+    return batch;
+  }
+
+  /**
+   * Runs the work on the items, split by bean into a few partitions per thread if parallelism is
+   * set and there are enough items, and waits for every partition
+   * 
+   * @return the results of the partitions in order
+   */
+  private <T, R> List<R> partitioned(Collection<T> items, Function<T, String> beanName,
+      Function<List<T>, R> work) {
+
+    ForkJoinPool pool = items.size() < parallelThreshold ? null : pool();
+
+    if (pool == null)
+      return Collections.singletonList(work.apply(new ArrayList<>(items)));
+
+    Map<String, List<T>> beans = new LinkedHashMap<>();
+
+    for (T item : items) {
+      beans.computeIfAbsent(beanName.apply(item), b -> new ArrayList<>()).add(item);
+    }
+
+    int size = (beans.size() + pool.getParallelism() * 4 - 1) / (pool.getParallelism() * 4);
+    List<Callable<R>> tasks = new ArrayList<>();
+    List<T> part = new ArrayList<>();
+    int count = 0;
+
+    for (List<T> bean : beans.values()) {
+
+      part.addAll(bean);
+
+      if (++count % size == 0 || count == beans.size()) {
+        List<T> chunk = part;
+        tasks.add(() -> work.apply(chunk));
+        part = new ArrayList<>();
       }
+    }
+
+    List<R> results = new ArrayList<>(tasks.size());
+
+    for (Future<R> result : pool.invokeAll(tasks)) {
+      try {
+        results.add(result.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while reloading beans", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Unable to reload beans", e.getCause());
+      }
+    }
+
+    return results;
+  }
 
-      Method[] methods = o.getClass().getMethods();
+  private synchronized ForkJoinPool pool() {
 
-      for (Method f : methods) {
+    if (parallelism < 2)
+      return null;
 
-        if (!f.isAnnotationPresent(Value.class)) {
-          continue;
-        } else if (f.getName().startsWith("set") && f.getParameterCount() == 1) {
+    if (pool == null) {
+      pool = new ForkJoinPool(parallelism, p -> {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+        t.setName("configrd-inject-" + t.getPoolIndex());
+        t.setDaemon(true);
+        return t;
+      }, null, false);
+    }
+
+    return pool;
+  }
+
+  /**
+   * Converts strings through the conversion service if it can, and anything else, like the result
+   * of a SpEL expression, through the type converter as Spring does at startup
+   */
+  private Converter<Object, Object> converterFor(ValueInjectionPoint point) {
+
+    TypeDescriptor type = point.getType();
+    Converter<Object, Object> converter = typeConverterFor(point);
+
+    if (String.class.equals(type.getType()))
+      return value -> value instanceof String ? value : converter.convert(value);
+
+    ConversionService conversionService = beanFactory.getConversionService();
 
-          String key = f.getAnnotation(Value.class).value();
-          String value = helper.replacePlaceholders(key, props);
+    if (conversionService != null && conversionService.canConvert(STRING, type))
+      return value -> value instanceof String ? conversionService.convert(value, STRING, type)
+          : converter.convert(value);
 
-          if (!StringUtils.isEmpty(value)) {
-            try {
-              f.invoke(o, value);
-            } catch (Exception e) {
+    return converter;
+  }
+
+  private Converter<Object, Object> typeConverterFor(ValueInjectionPoint point) {
 
-            }
-          }
+    TypeDescriptor type = point.getType();
+    TypeConverter converter = beanFactory.getTypeConverter();
+
+    if (point instanceof FieldInjectionPoint) {
+      Field field = ((FieldInjectionPoint) point).getField();
+      return value -> {
+        synchronized (typeConverterLock) {
+          return converter.convertIfNecessary(value, type.getType(), field);
         }
+      };
+    }
+
+    MethodParameter param = ((MethodInjectionPoint) point).getMethodParameter();
+    return value -> {
+      synchronized (typeConverterLock) {
+        return converter.convertIfNecessary(value, type.getType(), param);
       }
+    };
+  }
+
+  private Object unwrap(Object bean) {
+
+    Object target = AopProxyUtils.getSingletonTarget(bean);
+
+    while (target != null) {
+      bean = target;
+      target = AopProxyUtils.getSingletonTarget(bean);
     }
+
+    return bean;
+  }
+
+  private boolean isSingleton(String beanName) {
+
+    return beanFactory.containsBeanDefinition(beanName)
+        && beanFactory.getMergedBeanDefinition(beanName).isSingleton();
+  }
+
+  /**
+   * @param value
+   * @return the result of the SpEL expressions in the value, the value itself if it has none
+   */
+  private Object evaluate(String value) {
+
+    BeanExpressionResolver resolver = beanFactory.getBeanExpressionResolver();
+    return resolver == null ? value : resolver.evaluate(value, expressionContext);
+  }
+
+  private String resolve(ValueInjectionPoint point, ConfigSnapshot snapshot, Set<String> keys) {
+
+    Environment environment = this.environment;
+
+    if (environment == null)
+      return point.getTemplate().resolve(snapshot::getProperty, keys);
+
+    return point.getTemplate().resolve(key -> {
+
+      String value = configFirst ? snapshot.getProperty(key) : getProperty(environment, key);
+
+      if (value != null)
+        return value;
+
+      return configFirst ? getProperty(environment, key) : snapshot.getProperty(key);
+    }, keys);
+  }
+
+  private String getProperty(Environment environment, String key) {
+
+    if (!(environment instanceof ConfigurableEnvironment))
+      return environment.getProperty(key);
+
+    for (PropertySource<?> source : ((ConfigurableEnvironment) environment).getPropertySources()) {
+
+      if (ConfigrdPropertySource.NAME.equals(source.getName()))
+        continue;
+
+      Object value = source.getProperty(key);
+
+      if (value != null)
+        return value.toString();
+    }
+
+    return null;
   }
 }
@@ -0,0 +1,190 @@
+package com.appcrossings.config.spring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process http server for tests which serves the {@code env/} tree from the test classpath
+ * like a config server would, with {@code ETag} and {@code Last-Modified} validators, conditional
+ * requests and gzip. Files can be overridden to simulate changes. Counts requests, not modified
+ * responses and the body bytes sent.
+ */
+public class StubConfigServer implements AutoCloseable {
+
+  private static final class Content {
+
+    private final byte[] body;
+
+    private final String etag;
+
+    private final String lastModified;
+
+    private Content(byte[] body, long modified) {
+
+      CRC32 crc = new CRC32();
+      crc.update(body);
+
+      this.body = body;
+      this.etag = "\"" + Long.toHexString(crc.getValue()) + "\"";
+      this.lastModified = httpDate(modified);
+    }
+  }
+
+  private final AtomicLong bytes = new AtomicLong();
+
+  private final AtomicInteger notModified = new AtomicInteger();
+
+  private final Map<String, Content> overrides = new ConcurrentHashMap<>();
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private final HttpServer server;
+
+  private final long started = System.currentTimeMillis();
+
+  public StubConfigServer() throws IOException {
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/env/", this::handle);
+    server.start();
+  }
+
+  /**
+   * @param path such as {@code /env/dev/default.properties}
+   * @return the url of the path on this server
+   */
+  public String url(String path) {
+    return "http://localhost:" + server.getAddress().getPort() + path;
+  }
+
+  /**
+   * Serves the given content at the path from now on, with new validators
+   *
+   * @param path
+   * @param content
+   */
+  public void put(String path, String content) {
+    overrides.put(path, new Content(content.getBytes(StandardCharsets.ISO_8859_1),
+        System.currentTimeMillis() + 1000 * (overrides.size() + 1)));
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public int getNotModified() {
+    return notModified.get();
+  }
+
+  public int getRequests() {
+    return requests.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+
+    requests.incrementAndGet();
+
+    try {
+
+      Content content = content(exchange.getRequestURI().getPath());
+
+      if (content == null) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+
+      exchange.getResponseHeaders().set("ETag", content.etag);
+      exchange.getResponseHeaders().set("Last-Modified", content.lastModified);
+
+      String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+      String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+
+      if (ifNoneMatch != null ? ifNoneMatch.equals(content.etag)
+          : content.lastModified.equals(ifModifiedSince)) {
+        notModified.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+        return;
+      }
+
+      byte[] body = content.body;
+      String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+      if (accept != null && accept.contains("gzip")) {
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+          out.write(body);
+        }
+
+        body = gzipped.toByteArray();
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      }
+
+      // counted before sending, the client may read the body before this thread continues
+      bytes.addAndGet(body.length);
+      exchange.sendResponseHeaders(200, body.length);
+
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private Content content(String path) throws IOException {
+
+    Content content = overrides.get(path);
+
+    if (content != null)
+      return content;
+
+    try (InputStream in = getClass().getResourceAsStream(path)) {
+
+      if (in == null)
+        return null;
+
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int read;
+
+      while ((read = in.read(buffer)) >= 0) {
+        body.write(buffer, 0, read);
+      }
+
+      return new Content(body.toByteArray(), started);
+    }
+  }
+
+  private static String httpDate(long millis) {
+
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format.format(new Date(millis));
+  }
+
+}
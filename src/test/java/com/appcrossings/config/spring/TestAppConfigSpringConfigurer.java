@@ -1,6 +1,7 @@
 package com.appcrossings.config.spring;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.testng.annotations.Test;
@@ -21,6 +22,9 @@ public class TestAppConfigSpringConfigurer extends AbstractTestNGSpringContextTe
   @Autowired
   public SampleClass clazz;
 
+  @Autowired
+  private Environment environment;
+
   @Test
   public void testProperties() throws Exception {
 
@@ -40,4 +44,11 @@ public class TestAppConfigSpringConfigurer extends AbstractTestNGSpringContextTe
     assertEquals(config.getProperty("property.1.name", String.class), "vendor");
   }
 
+  @Test
+  public void testPropertiesInEnvironment() throws Exception {
+
+    assertTrue(environment.containsProperty("property.1.name"));
+    assertEquals(environment.getProperty("property.1.name"), "vendor");
+  }
+
 }
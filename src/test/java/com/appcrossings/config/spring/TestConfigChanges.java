@@ -0,0 +1,143 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+public class TestConfigChanges {
+
+  private static final class SlowSubscriber extends BaseSubscriber<ConfigChangeEvent> {
+
+    private final List<ConfigChangeEvent> received = new ArrayList<>();
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+      request(1);
+    }
+
+    @Override
+    protected void hookOnNext(ConfigChangeEvent event) {
+      received.add(event);
+    }
+  }
+
+  private ConfigrdPropertyPlaceholderConfigurer configurer;
+
+  private final List<Object> published = new ArrayList<>();
+
+  @BeforeMethod
+  public void setup() throws Exception {
+
+    published.clear();
+
+    configurer = new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties");
+    configurer.setApplicationEventPublisher(published::add);
+    configurer.publish(ConfigSnapshot.of(1, props("db.host", "db1", "db.port", "5432", "tenant",
+        "acme")));
+  }
+
+  @Test
+  public void testSubscribesToKeyOrPrefix() throws Exception {
+
+    List<ConfigChangeEvent> db = new ArrayList<>();
+    List<ConfigChangeEvent> tenant = new ArrayList<>();
+
+    Disposable first = ConfigChanges.of(configurer, "db").subscribe(db::add);
+    Disposable second = ConfigChanges.of(configurer, "tenant").subscribe(tenant::add);
+
+    configurer.publish(ConfigSnapshot.of(2, props("db.host", "db2", "db.port", "5433", "tenant",
+        "acme")));
+
+    assertEquals(db.size(), 1);
+    assertEquals(db.get(0).getKeys(), new HashSet<>(Arrays.asList("db.host", "db.port")));
+    assertEquals(db.get(0).getOldValue("db.host"), "db1");
+    assertEquals(db.get(0).getNewValue("db.host"), "db2");
+    assertEquals(db.get(0).getVersion(), 2);
+    assertTrue(tenant.isEmpty());
+
+    first.dispose();
+    second.dispose();
+
+    configurer.publish(ConfigSnapshot.of(3, props("db.host", "db3", "db.port", "5433", "tenant",
+        "acme")));
+    assertEquals(db.size(), 1);
+  }
+
+  @Test
+  public void testSlowSubscriberGetsCoalescedEvent() throws Exception {
+
+    SlowSubscriber subscriber = new SlowSubscriber();
+    ConfigChanges.of(configurer, "db.").subscribe(subscriber);
+
+    configurer.publish(ConfigSnapshot.of(2, props("db.host", "db2", "db.port", "5432", "tenant",
+        "acme")));
+    configurer.publish(ConfigSnapshot.of(3, props("db.host", "db3", "db.port", "5433", "tenant",
+        "acme")));
+    configurer.publish(ConfigSnapshot.of(4, props("db.host", "db4", "db.port", "5432", "tenant",
+        "acme")));
+
+    assertEquals(subscriber.received.size(), 1);
+    assertEquals(subscriber.received.get(0).getVersion(), 2);
+
+    subscriber.request(1);
+
+    assertEquals(subscriber.received.size(), 2);
+    ConfigChangeEvent coalesced = subscriber.received.get(1);
+    assertEquals(coalesced.getPreviousVersion(), 2);
+    assertEquals(coalesced.getVersion(), 4);
+    assertEquals(coalesced.getKeys(), new HashSet<>(Arrays.asList("db.host")));
+    assertEquals(coalesced.getOldValue("db.host"), "db2");
+    assertEquals(coalesced.getNewValue("db.host"), "db4");
+
+    subscriber.dispose();
+  }
+
+  @Test
+  public void testPublishedAsApplicationEvent() throws Exception {
+
+    assertEquals(published.size(), 1);
+
+    configurer.publish(ConfigSnapshot.of(2, props("db.host", "db1", "db.port", "5432", "tenant",
+        "other")));
+
+    assertEquals(published.size(), 2);
+    ConfigChangeEvent event = (ConfigChangeEvent) published.get(1);
+    assertEquals(event.getSource(), configurer);
+    assertEquals(event.getKeys(), new HashSet<>(Arrays.asList("tenant")));
+    assertNull(event.select("db"));
+  }
+
+  @Test
+  public void testMatches() throws Exception {
+
+    assertTrue(ConfigChangeEvent.matches("db.host", "db"));
+    assertTrue(ConfigChangeEvent.matches("db.host", "db."));
+    assertTrue(ConfigChangeEvent.matches("db.host", "db.host"));
+    assertTrue(ConfigChangeEvent.matches("db.hosts[0]", "db.hosts"));
+    assertTrue(ConfigChangeEvent.matches("db.host", ""));
+    assertTrue(!ConfigChangeEvent.matches("dbx.host", "db"));
+    assertTrue(!ConfigChangeEvent.matches("db", "db.host"));
+  }
+
+  private Properties props(String... pairs) {
+
+    Properties props = new Properties();
+
+    for (int i = 0; i < pairs.length; i += 2) {
+      props.put(pairs[i], pairs[i + 1]);
+    }
+
+    return props;
+  }
+
+}
@@ -0,0 +1,100 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestConfigDirectoryWatcher {
+
+  private Path root;
+
+  private Path custom;
+
+  private Path dev;
+
+  private Path other;
+
+  @BeforeMethod
+  public void setup() throws Exception {
+
+    root = Files.createTempDirectory("configrd").toAbsolutePath().normalize();
+    dev = Files.createDirectories(root.resolve("dev"));
+    custom = Files.createDirectories(dev.resolve("custom"));
+    other = Files.createDirectories(root.resolve("other"));
+
+    Files.write(root.resolve("hosts.properties"),
+        ("*=" + dev.toUri() + "\nQA=" + custom.toUri() + "\nPROD=" + other.toUri()
+            + "\nxyz=file:/does/not/exist/\n").getBytes(StandardCharsets.UTF_8));
+    Files.write(dev.resolve("default.properties"),
+        "property.1.name=value1\n".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @AfterMethod
+  public void teardown() throws Exception {
+    FileSystemUtils.deleteRecursively(root.toFile());
+  }
+
+  @Test
+  public void testResolveDirectories() throws Exception {
+
+    String hosts = root.resolve("hosts.properties").toUri().toString();
+    DefaultResourceLoader loader = new DefaultResourceLoader();
+
+    assertEquals(ConfigDirectoryWatcher.resolveDirectories(hosts, null, "QA", new String[0], loader),
+        new HashSet<>(Arrays.asList(root, dev, custom)));
+    assertEquals(ConfigDirectoryWatcher.resolveDirectories(hosts, null, null, new String[0], loader),
+        new HashSet<>(Arrays.asList(root, dev)));
+    assertEquals(ConfigDirectoryWatcher.resolveDirectories(hosts, "xyz", "QA",
+        new String[] {"PROD"}, loader), new HashSet<>(Arrays.asList(root, other)));
+  }
+
+  @Test
+  public void testDebouncedReloadOnChange() throws Exception {
+
+    AtomicInteger reloads = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+
+    RefreshScheduler scheduler = new RefreshScheduler(() -> {
+      reloads.incrementAndGet();
+      latch.countDown();
+    }, 0, 0, 0);
+    scheduler.start();
+
+    Set<Path> dirs = ConfigDirectoryWatcher.resolveDirectories(
+        root.resolve("hosts.properties").toUri().toString(), null, null, new String[0],
+        new DefaultResourceLoader());
+
+    ConfigDirectoryWatcher watcher =
+        new ConfigDirectoryWatcher(dirs, () -> scheduler.trigger(300));
+
+    try {
+
+      for (int i = 0; i < 5; i++) {
+        Files.write(dev.resolve("default.properties"),
+            ("property.1.name=value" + i + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      Thread.sleep(500);
+      assertEquals(reloads.get(), 1);
+
+    } finally {
+      watcher.close();
+      scheduler.stop();
+    }
+  }
+
+}
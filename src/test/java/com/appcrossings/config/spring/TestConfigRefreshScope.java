@@ -0,0 +1,124 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestConfigRefreshScope {
+
+  @RefreshScope
+  public static class Pool implements DisposableBean {
+
+    static final AtomicInteger built = new AtomicInteger();
+
+    static CountDownLatch destroyed;
+
+    private final int generation;
+
+    public Pool() {
+      ConfigrdPropertySource.record("pool.size");
+      generation = built.incrementAndGet();
+    }
+
+    public int getGeneration() {
+      return generation;
+    }
+
+    @Override
+    public void destroy() {
+      destroyed.countDown();
+    }
+  }
+
+  private AnnotationConfigApplicationContext context;
+
+  private ConfigRefreshScope scope;
+
+  @BeforeMethod
+  public void setup() {
+
+    Pool.built.set(0);
+    Pool.destroyed = new CountDownLatch(1);
+
+    scope = new ConfigRefreshScope();
+    scope.setDrainTimeout(50);
+
+    context = new AnnotationConfigApplicationContext();
+    context.getBeanFactory().registerScope(ConfigRefreshScope.NAME, scope);
+    context.register(Pool.class);
+    context.refresh();
+  }
+
+  @AfterMethod
+  public void teardown() {
+    scope.destroy();
+    context.close();
+  }
+
+  @Test
+  public void testRebuiltWhenDependentKeyChanges() throws Exception {
+
+    Pool pool = context.getBean(Pool.class);
+
+    assertTrue(AopUtils.isAopProxy(pool));
+    assertEquals(pool.getGeneration(), 1);
+    assertEquals(scope.size(), 1);
+
+    assertEquals(scope.refresh(Collections.singleton("other.key")), 0);
+    assertEquals(pool.getGeneration(), 1);
+
+    assertEquals(scope.refresh(Collections.singleton("pool.size")), 1);
+    assertEquals(scope.size(), 0);
+    assertEquals(Pool.built.get(), 1);
+
+    assertEquals(pool.getGeneration(), 2);
+    assertTrue(Pool.destroyed.await(2, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testDestroyedWhenContextCloses() throws Exception {
+
+    ConfigrdPropertyPlaceholderConfigurer configurer =
+        new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties", 0);
+
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context.registerBean("configurer", ConfigrdPropertyPlaceholderConfigurer.class,
+        () -> configurer);
+    context.register(Pool.class);
+    context.refresh();
+
+    assertEquals(context.getBean(Pool.class).getGeneration(), 1);
+
+    context.close();
+    assertEquals(Pool.destroyed.getCount(), 0);
+  }
+
+  @Test
+  public void testOldInstanceDrainsBeforeDestruction() throws Exception {
+
+    scope.setDrainTimeout(500);
+
+    Object target = scope.get("scopedTarget.pool", Pool::new);
+    assertSame(scope.get("scopedTarget.pool", Pool::new), target);
+
+    scope.registerDestructionCallback("scopedTarget.pool", () -> Pool.destroyed.countDown());
+    scope.refresh(Collections.singleton("pool.size"));
+
+    assertNotSame(scope.get("scopedTarget.pool", Pool::new), target);
+    assertFalse(Pool.destroyed.await(100, TimeUnit.MILLISECONDS));
+    assertTrue(Pool.destroyed.await(2, TimeUnit.SECONDS));
+  }
+
+}
@@ -0,0 +1,222 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.jasypt.encryption.pbe.StandardPBEStringEncryptor;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.testng.annotations.Test;
+
+public class TestConfigSnapshot {
+
+  @Test
+  public void testSnapshotIsImmutable() throws Exception {
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+
+    ConfigSnapshot snapshot = ConfigSnapshot.of(1, props);
+    props.put("property.1.name", "changed");
+    snapshot.toProperties().put("property.1.name", "changed");
+
+    assertEquals(snapshot.getProperty("property.1.name"), "value1");
+    assertEquals(snapshot.getVersion(), 1);
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testPropertyNamesAreReadOnly() throws Exception {
+
+    ConfigSnapshot.EMPTY.getPropertyNames().add("property.1.name");
+  }
+
+  @Test
+  public void testChangedKeys() throws Exception {
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+    props.put("property.2.name", "value2");
+    props.put("property.3.name", "value3");
+
+    Properties updated = new Properties();
+    updated.put("property.1.name", "value1");
+    updated.put("property.2.name", "changed");
+    updated.put("property.4.name", "value4");
+
+    Set<String> changed = ConfigSnapshot.of(2, updated).changedKeys(ConfigSnapshot.of(1, props));
+
+    assertEquals(changed.size(), 3);
+    assertTrue(changed.contains("property.2.name"));
+    assertTrue(changed.contains("property.3.name"));
+    assertTrue(changed.contains("property.4.name"));
+    assertTrue(ConfigSnapshot.of(2, props).changedKeys(ConfigSnapshot.of(1, props)).isEmpty());
+  }
+
+  @Test
+  public void testPrefixQuery() throws Exception {
+
+    Properties props = new Properties();
+    props.put("db.pool.maxSize", "10");
+    props.put("db.pool.minSize", "2");
+    props.put("db.poolName", "main");
+    props.put("db.host", "db1");
+    props.put("dc", "east");
+
+    ConfigSnapshot snapshot = ConfigSnapshot.of(1, props);
+    Map<String, String> pool = snapshot.getProperties("db.pool.");
+
+    assertEquals(new ArrayList<>(pool.keySet()),
+        Arrays.asList("db.pool.maxSize", "db.pool.minSize"));
+    assertEquals(pool.get("db.pool.maxSize"), "10");
+    assertNull(pool.get("db.host"));
+    assertTrue(snapshot.getProperties("cache.").isEmpty());
+    assertEquals(snapshot.getProperties("d").size(), 5);
+    assertEquals(snapshot.getProperties("").size(), 5);
+    assertTrue(snapshot.containsProperty("dc"));
+    assertSame(snapshot.getPropertyNameArray()[0], "db.host");
+  }
+
+  @Test
+  public void testUnchangedReloadKeepsVersion() throws Exception {
+
+    ConfigrdPropertyPlaceholderConfigurer configurer =
+        new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties");
+    configurer.setEnvironment("QA");
+
+    assertEquals(configurer.getVersion(), 0);
+    assertNull(configurer.getProperty("property.1.name", String.class));
+
+    configurer.reload();
+    ConfigSnapshot first = configurer.getSnapshot();
+    assertEquals(first.getVersion(), 1);
+
+    configurer.reload();
+    assertEquals(configurer.getVersion(), 1);
+    assertSame(configurer.getSnapshot(), first);
+    assertEquals(configurer.getProperties(), first.toProperties());
+  }
+
+  @Test
+  public void testConcurrentLoadsPublishDistinctVersions() throws Exception {
+
+    ConfigrdPropertyPlaceholderConfigurer configurer =
+        new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties");
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+
+    // both loaded from the same published snapshot, so both are numbered 1
+    ConfigSnapshot first = ConfigSnapshot.of(1, props);
+    props.put("property.1.name", "value2");
+    ConfigSnapshot second = ConfigSnapshot.of(1, props);
+
+    assertEquals(configurer.publish(first).getVersion(), 1);
+    assertEquals(configurer.publish(second).getVersion(), 2);
+    assertEquals(configurer.getVersion(), 2);
+    assertEquals(configurer.getProperty("property.1.name", String.class), "value2");
+  }
+
+  @Test
+  public void testTypedValuesAreCachedPerSnapshot() throws Exception {
+
+    ConversionService conversion = DefaultConversionService.getSharedInstance();
+
+    Properties props = new Properties();
+    props.put("pool.size", "2048");
+    props.put("pool.enabled", "true");
+
+    ConfigSnapshot snapshot = ConfigSnapshot.of(1, props);
+
+    Integer size = snapshot.getProperty("pool.size", Integer.class, conversion);
+    assertEquals(size, Integer.valueOf(2048));
+    assertSame(snapshot.getProperty("pool.size", Integer.class, conversion), size);
+    assertEquals(snapshot.getProperty("pool.size", Long.class, conversion), Long.valueOf(2048));
+    assertEquals(snapshot.getProperty("pool.enabled", Boolean.class, conversion), Boolean.TRUE);
+    assertNull(snapshot.getProperty("pool.missing", Integer.class, conversion));
+    assertNull(snapshot.getProperty("pool.missing", Integer.class, conversion));
+
+    props.put("pool.size", "10");
+    assertEquals(ConfigSnapshot.of(2, props).getProperty("pool.size", Integer.class, conversion),
+        Integer.valueOf(10));
+  }
+
+  @Test
+  public void testFingerprint() throws Exception {
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+    props.put("property.2.name", "value2");
+
+    Properties swapped = new Properties();
+    swapped.put("property.1.name", "value2");
+    swapped.put("property.2.name", "value1");
+
+    Properties copy = new Properties();
+    copy.putAll(props);
+
+    assertEquals(ConfigSnapshot.fingerprint(copy), ConfigSnapshot.fingerprint(props));
+    assertNotEquals(ConfigSnapshot.fingerprint(swapped), ConfigSnapshot.fingerprint(props));
+    assertEquals(ConfigSnapshot.of(1, props).getFingerprint(), ConfigSnapshot.fingerprint(props));
+  }
+
+  @Test
+  public void testEncryptedValuesAreDecryptedOnceAcrossSnapshots() throws Exception {
+
+    AtomicInteger decrypted = new AtomicInteger();
+
+    StandardPBEStringEncryptor standard = new StandardPBEStringEncryptor();
+    standard.setPassword("secret");
+
+    PBEStringEncryptor encryptor = new PBEStringEncryptor() {
+
+      @Override
+      public String decrypt(String encryptedMessage) {
+        decrypted.incrementAndGet();
+        return standard.decrypt(encryptedMessage);
+      }
+
+      @Override
+      public String encrypt(String message) {
+        return standard.encrypt(message);
+      }
+
+      @Override
+      public void setPassword(String password) {
+        standard.setPassword(password);
+      }
+    };
+
+    PropertyDecryptor decryptor = new PropertyDecryptor();
+    decryptor.setEncryptor(encryptor);
+
+    Properties props = new Properties();
+    props.put("property.6.name", "ENC(NvuRfrVnqL8yDunzmutaCa6imIzh6QFL)");
+    props.put("property.1.name", "value1");
+
+    ConfigSnapshot first = ConfigSnapshot.of(1, props, decryptor);
+    assertEquals(decrypted.get(), 0);
+    assertEquals(first.getProperty("property.6.name"), "password");
+    assertEquals(first.getRawProperty("property.6.name"), "ENC(NvuRfrVnqL8yDunzmutaCa6imIzh6QFL)");
+
+    props.put("property.1.name", "changed");
+    ConfigSnapshot second = ConfigSnapshot.of(2, props, decryptor);
+
+    assertEquals(second.getProperty("property.6.name"), "password");
+    assertEquals(second.toProperties().getProperty("property.6.name"), "password");
+    assertEquals(decrypted.get(), 1);
+
+    props.remove("property.6.name");
+    decryptor.retain(ConfigSnapshot.of(3, props, decryptor).values());
+    assertEquals(decryptor.size(), 0);
+  }
+
+}
@@ -0,0 +1,239 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.autoconfigure.http.HttpEncodingProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.support.GenericApplicationContext;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import com.appcrossings.config.spring.ValueInjector.Batch;
+
+public class TestConfigurationPropertiesRebinder {
+
+  @ConfigurationProperties("pool")
+  public static class PoolProperties {
+
+    private String host = "localhost";
+
+    private Object listener;
+
+    private int size;
+
+    public Object listener() {
+      return listener;
+    }
+
+    public void listen(Object listener) {
+      this.listener = listener;
+    }
+
+    public String getHost() {
+      return host;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public void setHost(String host) {
+      this.host = host;
+    }
+
+    public void setSize(int size) {
+      this.size = size;
+    }
+  }
+
+  @ConfigurationProperties("cache")
+  public static class CacheProperties {
+
+    private int ttl;
+
+    public int getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(int ttl) {
+      this.ttl = ttl;
+    }
+  }
+
+  @ConfigurationProperties("tuned")
+  public static class TunedProperties {
+
+    @Value("${app.label:none}")
+    private String label;
+
+    private int size;
+
+    public String getLabel() {
+      return label;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public void setSize(int size) {
+      this.size = size;
+    }
+  }
+
+  private GenericApplicationContext context;
+
+  private ValueInjector injector;
+
+  private ConfigurationPropertiesRebinder rebinder;
+
+  @BeforeMethod
+  public void setup() {
+
+    context = new GenericApplicationContext();
+    injector = new ValueInjector(context.getBeanFactory(), "${", "}");
+    ConfigSnapshot startup =
+        ConfigSnapshot.of(1, props("pool.host", "localhost", "cache.ttl", "0", "tuned.size", "0"));
+    rebinder = new ConfigurationPropertiesRebinder(context.getBeanFactory(),
+        context.getEnvironment(), true, () -> startup);
+    rebinder.setProxying(true);
+    context.getBeanFactory().addBeanPostProcessor(injector);
+    context.getBeanFactory().addBeanPostProcessor(rebinder);
+
+    context.registerBeanDefinition("pool", new RootBeanDefinition(PoolProperties.class));
+    context.registerBeanDefinition("cache", new RootBeanDefinition(CacheProperties.class));
+    context.registerBeanDefinition("tuned", new RootBeanDefinition(TunedProperties.class));
+    context.registerBeanDefinition("encoding",
+        new RootBeanDefinition(HttpEncodingProperties.class));
+    context.refresh();
+  }
+
+  @AfterMethod
+  public void teardown() {
+    context.close();
+  }
+
+  @Test
+  public void testRebindsOnlyAffectedBeans() throws Exception {
+
+    ConfigSnapshot loaded = ConfigSnapshot.of(1, props("pool.host", "db1", "pool.size", "10",
+        "cache.ttl", "60"));
+
+    PoolProperties pool = context.getBean(PoolProperties.class);
+    CacheProperties cache = context.getBean(CacheProperties.class);
+
+    assertEquals(rebinder.size(), 4);
+    assertTrue(reload(loaded, loaded.changedKeys(ConfigSnapshot.EMPTY)));
+    assertEquals(pool.getHost(), "db1");
+    assertEquals(pool.getSize(), 10);
+    assertEquals(cache.getTtl(), 60);
+
+    ConfigSnapshot changed = ConfigSnapshot.of(2, props("pool.host", "db1", "pool.size", "20",
+        "cache.ttl", "90"));
+
+    cache.setTtl(5);
+    Batch batch = injector.prepare(changed, Collections.singleton("pool.size"));
+    rebinder.prepare(batch, changed, Collections.singleton("pool.size"));
+
+    assertEquals(batch.size(), 1);
+    assertEquals(pool.getSize(), 10);
+    assertTrue(injector.apply(batch));
+    assertEquals(pool.getSize(), 20);
+    assertEquals(cache.getTtl(), 5);
+  }
+
+  @Test
+  public void testSwapsBoundCopyOfLiveBean() throws Exception {
+
+    ConfigSnapshot loaded = ConfigSnapshot.of(1, props("pool.host", "db1", "pool.size", "10"));
+    assertTrue(reload(loaded, loaded.changedKeys(ConfigSnapshot.EMPTY)));
+
+    PoolProperties pool = context.getBean(PoolProperties.class);
+    Object listener = new Object();
+    pool.listen(listener);
+
+    assertTrue(AopUtils.isAopProxy(pool));
+
+    ConfigSnapshot changed = ConfigSnapshot.of(2, props("pool.size", "20"));
+    assertTrue(reload(changed, changed.changedKeys(loaded)));
+
+    assertEquals(pool.getSize(), 20);
+    assertEquals(pool.getHost(), "localhost");
+    assertSame(pool.listener(), listener);
+  }
+
+  @Test
+  public void testFailedBindLeavesBeanUntouched() throws Exception {
+
+    ConfigSnapshot loaded = ConfigSnapshot.of(1, props("pool.host", "db1", "pool.size", "10"));
+    assertTrue(reload(loaded, loaded.changedKeys(ConfigSnapshot.EMPTY)));
+
+    ConfigSnapshot broken = ConfigSnapshot.of(2, props("pool.host", "db2", "pool.size", "ten"));
+    assertFalse(reload(broken, broken.changedKeys(loaded)));
+
+    PoolProperties pool = context.getBean(PoolProperties.class);
+    assertEquals(pool.getHost(), "db1");
+    assertEquals(pool.getSize(), 10);
+  }
+
+  @Test
+  public void testBootPropertiesAreReboundInPlace() throws Exception {
+
+    HttpEncodingProperties encoding = context.getBean(HttpEncodingProperties.class);
+    assertEquals(encoding.getClass(), HttpEncodingProperties.class);
+
+    ConfigSnapshot loaded =
+        ConfigSnapshot.of(1, props("spring.http.encoding.charset", "ISO-8859-1"));
+    assertTrue(reload(loaded, loaded.changedKeys(ConfigSnapshot.EMPTY)));
+
+    assertSame(context.getBean(HttpEncodingProperties.class), encoding);
+    assertEquals(encoding.getCharset(), StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void testValueMembersAreReboundInPlace() throws Exception {
+
+    TunedProperties tuned = context.getBean(TunedProperties.class);
+    assertFalse(AopUtils.isAopProxy(tuned));
+
+    ConfigSnapshot loaded = ConfigSnapshot.of(1, props("tuned.size", "4", "app.label", "fast"));
+    assertTrue(reload(loaded, loaded.changedKeys(ConfigSnapshot.EMPTY)));
+
+    assertEquals(tuned.getSize(), 4);
+    assertEquals(tuned.getLabel(), "fast");
+
+    ConfigSnapshot changed = ConfigSnapshot.of(2, props("tuned.size", "8", "app.label", "slow"));
+    assertTrue(reload(changed, changed.changedKeys(loaded)));
+
+    assertEquals(tuned.getSize(), 8);
+    assertEquals(tuned.getLabel(), "slow");
+  }
+
+  private boolean reload(ConfigSnapshot snapshot, Set<String> changed) {
+
+    Batch batch = injector.prepare(snapshot, changed);
+    rebinder.prepare(batch, snapshot, changed);
+    return injector.apply(batch);
+  }
+
+  private Properties props(String... pairs) {
+
+    Properties props = new Properties();
+
+    for (int i = 0; i < pairs.length; i += 2) {
+      props.put(pairs[i], pairs[i + 1]);
+    }
+
+    return props;
+  }
+
+}
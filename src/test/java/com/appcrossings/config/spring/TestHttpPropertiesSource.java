@@ -0,0 +1,83 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.util.Properties;
+import org.springframework.core.io.UrlResource;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestHttpPropertiesSource {
+
+  private StubConfigServer server;
+
+  @BeforeMethod
+  public void setup() throws Exception {
+    server = new StubConfigServer();
+  }
+
+  @AfterMethod
+  public void teardown() {
+    server.close();
+  }
+
+  @Test
+  public void testConditionalFetch() throws Exception {
+
+    HttpPropertiesSource source =
+        new HttpPropertiesSource(new URL(server.url("/env/dev/default.properties")), null);
+
+    Properties first = source.fetch();
+    assertEquals(first.getProperty("property.1.name"), "value1");
+
+    long bytes = server.getBytes();
+    assertSame(source.fetch(), first);
+    assertEquals(server.getRequests(), 2);
+    assertEquals(server.getNotModified(), 1);
+    assertEquals(server.getBytes(), bytes);
+
+    server.put("/env/dev/default.properties", "property.1.name=changed\n");
+
+    Properties changed = source.fetch();
+    assertNotSame(changed, first);
+    assertEquals(changed.getProperty("property.1.name"), "changed");
+  }
+
+  @Test(expectedExceptions = FileNotFoundException.class)
+  public void testNotFound() throws Exception {
+
+    new HttpPropertiesSource(new URL(server.url("/env/missing.properties")), null).fetch();
+  }
+
+  @Test
+  public void testNotModifiedSkipsReload() throws Exception {
+
+    ConfigrdPropertyPlaceholderConfigurer configurer =
+        new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties");
+    configurer.setLocation(new UrlResource(server.url("/env/dev/default.properties")));
+    configurer.setLocalOverride(false);
+
+    assertEquals(configurer.reload().getStatus(), ReloadResult.Status.APPLIED);
+    ConfigSnapshot loaded = configurer.getSnapshot();
+    assertEquals(loaded.getProperty("property.2.name"), "value2");
+
+    long bytes = server.getBytes();
+
+    assertEquals(configurer.reload().getStatus(), ReloadResult.Status.UNCHANGED);
+    assertEquals(configurer.reload().getStatus(), ReloadResult.Status.UNCHANGED);
+    assertSame(configurer.getSnapshot(), loaded);
+    assertEquals(server.getNotModified(), 2);
+    assertEquals(server.getBytes(), bytes);
+
+    server.put("/env/dev/default.properties", "property.2.name=changed\n");
+
+    assertEquals(configurer.reload().getStatus(), ReloadResult.Status.APPLIED);
+    assertEquals(configurer.getSnapshot().getProperty("property.2.name"), "changed");
+    assertEquals(configurer.getSnapshot().getVersion(), 2);
+  }
+
+}
@@ -0,0 +1,126 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import com.appcrossings.config.spring.LayeredConfigLoader.Layer;
+import com.appcrossings.config.spring.LayeredConfigLoader.Result;
+
+public class TestLayeredConfigLoader {
+
+  private final LayeredConfigLoader loader = new LayeredConfigLoader();
+
+  @AfterMethod
+  public void teardown() {
+    loader.shutdown();
+  }
+
+  @Test
+  public void testLaterLayersOverride() throws Exception {
+
+    Properties merged = loader.load(Arrays.asList(layer("defaults", 0, "property.1.name", "value1"),
+        layer("env", 0, "property.1.name", "custom"), layer("bonus", 0, "bonus.1.property", "bonus1")))
+        .getProperties();
+
+    assertEquals(merged.getProperty("property.1.name"), "custom");
+    assertEquals(merged.getProperty("bonus.1.property"), "bonus1");
+  }
+
+  @Test
+  public void testLayersAreFetchedConcurrently() throws Exception {
+
+    long start = System.currentTimeMillis();
+
+    Properties merged = loader.load(Arrays.asList(layer("slow1", 400, "property.1.name", "value1"),
+        layer("slow2", 400, "property.2.name", "value2"),
+        layer("slow3", 400, "property.3.name", "value3"))).getProperties();
+
+    assertEquals(merged.size(), 3);
+    assertTrue(System.currentTimeMillis() - start < 1000);
+  }
+
+  @Test
+  public void testLayerFetchIsTimed() throws Exception {
+
+    Map<String, Long> timings = new ConcurrentHashMap<>();
+
+    loader.setMetrics(new ConfigMetrics() {
+      @Override
+      public void layerFetched(String layer, long nanos) {
+        timings.put(layer, nanos);
+      }
+    });
+
+    loader.load(Arrays.asList(layer("fast", 0, "property.1.name", "value1"),
+        layer("slow", 100, "property.2.name", "value2")));
+
+    assertEquals(timings.size(), 2);
+    assertTrue(timings.get("slow") >= 100000000L);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testFailedLayerFailsLoad() throws Exception {
+
+    loader.load(Arrays.asList(layer("ok", 0, "property.1.name", "value1"),
+        new Layer("broken", () -> {
+          throw new IOException("source down");
+        })));
+  }
+
+  @Test
+  public void testUnchangedLayersReturnPreviousProperties() throws Exception {
+
+    Properties remote = new Properties();
+    remote.put("property.2.name", "value2");
+
+    Layer conditional = new Layer("remote", () -> remote, true);
+    Result first = loader.load(Arrays.asList(layer("local", 0, "property.1.name", "value1"),
+        conditional));
+    assertFalse(first.isUnchanged());
+
+    Result second = loader.load(Arrays.asList(layer("local", 0, "property.1.name", "value1"),
+        conditional));
+    assertTrue(second.isUnchanged());
+    assertSame(second.getProperties(), first.getProperties());
+
+    Result third = loader.load(Arrays.asList(layer("local", 0, "property.1.name", "changed"),
+        conditional));
+    assertFalse(third.isUnchanged());
+    assertNotSame(third.getProperties(), first.getProperties());
+  }
+
+  @Test
+  public void testSingleLayerChangedInPlace() throws Exception {
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+
+    Layer client = new Layer("client", () -> props);
+    assertFalse(loader.load(Arrays.asList(client)).isUnchanged());
+
+    props.put("property.1.name", "changed");
+    Result changed = loader.load(Arrays.asList(client));
+    assertFalse(changed.isUnchanged());
+    assertEquals(changed.getProperties().getProperty("property.1.name"), "changed");
+  }
+
+  private Layer layer(String name, long delay, String key, String value) {
+
+    return new Layer(name, () -> {
+      Thread.sleep(delay);
+      Properties props = new Properties();
+      props.put(key, value);
+      return props;
+    });
+  }
+
+}
@@ -0,0 +1,106 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import org.springframework.util.PropertyPlaceholderHelper;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestPlaceholderTemplate {
+
+  private final PlaceholderTemplate.Compiler compiler =
+      new PlaceholderTemplate.Compiler("${", "}", ":");
+
+  private Properties props;
+
+  @BeforeMethod
+  public void setup() {
+
+    props = new Properties();
+    props.put("property.1.name", "vendor");
+    props.put("property.3.name", "custom");
+    props.put("property.4.name", "${property.1.name}-${property.3.name}");
+    props.put("tenant", "acme");
+    props.put("db.acme.host", "db.acme.internal");
+  }
+
+  @Test
+  public void testMatchesPropertyPlaceholderHelper() throws Exception {
+
+    PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper("${", "}", ":", false);
+
+    for (String expression : new String[] {"${property.1.name}", "${property.4.name}",
+        "${bonus.1.property:none}", "${db.${tenant}.host}", "jdbc://${db.${tenant}.host}:5432/x",
+        "${missing:${property.3.name}}", "${missing:}", "no placeholder", "#{'spel'}",
+        "${unterminated", "${missing:a:b}"}) {
+
+      assertEquals(compiler.compile(expression).resolve(props::getProperty),
+          helper.replacePlaceholders(expression, props::getProperty), expression);
+    }
+  }
+
+  @Test
+  public void testSingleReferenceReturnsValue() throws Exception {
+
+    String value = props.getProperty("property.1.name");
+    assertSame(compiler.compile("${property.1.name}").resolve(props::getProperty), value);
+  }
+
+  @Test
+  public void testCollectsKeys() throws Exception {
+
+    Set<String> keys = new HashSet<>();
+    compiler.compile("${db.${tenant}.host}/${property.4.name}/${missing:x}")
+        .resolve(props::getProperty, keys);
+
+    assertEquals(keys.size(), 6);
+    assertTrue(keys.contains("tenant"));
+    assertTrue(keys.contains("db.acme.host"));
+    assertTrue(keys.contains("property.1.name"));
+    assertTrue(keys.contains("property.3.name"));
+    assertTrue(keys.contains("missing"));
+  }
+
+  @Test
+  public void testReferencesWithoutResolving() throws Exception {
+
+    Set<String> references =
+        compiler.compile("${a}${b}/${db.${tenant}.host}/${c:${d}}").getReferences();
+
+    assertEquals(references, new HashSet<>(Arrays.asList("a", "b", "tenant", "c", "d")));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class,
+      expectedExceptionsMessageRegExp = "Could not resolve placeholder 'missing' .*")
+  public void testUnresolvableKey() throws Exception {
+
+    compiler.compile("${missing}").resolve(props::getProperty);
+  }
+
+  @Test
+  public void testSelfReferenceIsRejectedAtCompileTime() throws Exception {
+
+    try {
+      compiler.compileValue("loop", "prefix-${loop:none}");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("Circular"));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class,
+      expectedExceptionsMessageRegExp = "Circular placeholder reference .*")
+  public void testCycleThroughSeveralKeys() throws Exception {
+
+    props.put("a", "${b}");
+    props.put("b", "x-${a}");
+    compiler.compile("${a}").resolve(props::getProperty);
+  }
+
+}
@@ -0,0 +1,107 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestProfileLayers {
+
+  private ConfigrdPropertyPlaceholderConfigurer configurer;
+
+  @BeforeMethod
+  public void setup() throws Exception {
+    configurer = new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties");
+  }
+
+  @Test
+  public void testProfilesAreLayeredInOrder() throws Exception {
+
+    configurer.setProfiles("DEV", "QA", "canary");
+    configurer.reload();
+
+    assertEquals(configurer.getProperty("property.1.name", String.class), "custom");
+    assertEquals(configurer.getProperty("property.2.name", String.class), "value2");
+    assertEquals(configurer.getProperty("property.3.name", String.class), "custom");
+
+    configurer.setProfiles("QA", "DEV");
+    configurer.reload();
+
+    assertEquals(configurer.getProperty("property.1.name", String.class), "value1");
+    assertEquals(configurer.getProperty("property.3.name", String.class), "custom");
+  }
+
+  @Test
+  public void testActiveProfilesAfterTheEnvironment() throws Exception {
+
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.setActiveProfiles("QA", "DEV");
+
+    configurer.setEnvironment(environment);
+    configurer.reload();
+
+    assertEquals(configurer.getProperty("property.1.name", String.class), "value1");
+    assertEquals(configurer.getProperty("property.2.name", String.class), "value2");
+  }
+
+  @Test
+  public void testExplicitProfilesOverrideActiveProfiles() throws Exception {
+
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.setActiveProfiles("DEV", "canary");
+
+    configurer.setProfiles("QA");
+    configurer.setEnvironment(environment);
+    configurer.reload();
+
+    assertEquals(configurer.getProperty("property.1.name", String.class), "custom");
+  }
+
+  @Test
+  public void testParsedFilesAreBounded() throws Exception {
+
+    Path dir = Files.createTempDirectory("configrd");
+
+    try {
+
+      for (int i = 0; i <= LayerCache.MAX_ENTRIES; i++) {
+        Path file = Files.write(dir.resolve(i + ".properties"), ("property." + i + "=x").getBytes());
+        LayerCache.load(new FileSystemResource(file.toFile()), null);
+      }
+
+      assertTrue(LayerCache.size() <= LayerCache.MAX_ENTRIES);
+
+    } finally {
+      FileSystemUtils.deleteRecursively(dir.toFile());
+    }
+  }
+
+  @Test
+  public void testParsedProfilesAreShared() throws Exception {
+
+    configurer.setProfiles("QA");
+    configurer.reload();
+
+    ConfigrdPropertyPlaceholderConfigurer other =
+        new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties");
+    other.setProfiles("DEV", "QA");
+    other.reload();
+
+    Properties custom =
+        LayerCache.load(new ClassPathResource("/env/dev/custom/default.properties"), null);
+
+    assertSame(LayerCache.load(new ClassPathResource("/env/dev/custom/default.properties"), null),
+        custom);
+    assertEquals(custom.getProperty("property.1.name"), "custom");
+    assertEquals(other.getProperty("property.1.name", String.class), "custom");
+  }
+
+}
@@ -0,0 +1,115 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+public class TestRefreshScheduler {
+
+  @Test
+  public void testSurvivesFailures() throws Exception {
+
+    CountDownLatch latch = new CountDownLatch(3);
+
+    RefreshScheduler scheduler = new RefreshScheduler(() -> {
+      latch.countDown();
+      throw new IllegalStateException("source down");
+    }, 20, 10, 40);
+
+    scheduler.start();
+
+    try {
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertTrue(scheduler.isRunning());
+    } finally {
+      scheduler.stop();
+    }
+
+    assertFalse(scheduler.isRunning());
+  }
+
+  @Test
+  public void testStopCancelsSchedule() throws Exception {
+
+    AtomicInteger runs = new AtomicInteger();
+
+    RefreshScheduler scheduler = new RefreshScheduler(runs::incrementAndGet, 10, 0, 10);
+    scheduler.start();
+    Thread.sleep(100);
+    scheduler.stop();
+
+    int stopped = runs.get();
+    assertTrue(stopped > 0);
+
+    Thread.sleep(100);
+    assertTrue(runs.get() == stopped);
+
+    scheduler.trigger(0);
+    Thread.sleep(50);
+    assertTrue(runs.get() == stopped);
+  }
+
+  @Test
+  public void testTriggerDuringRunKeepsOneSchedule() throws Exception {
+
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    long start = System.nanoTime();
+
+    RefreshScheduler scheduler = new RefreshScheduler(() -> {
+      runs.incrementAndGet();
+      started.countDown();
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, 300, 0, 300);
+
+    scheduler.start();
+
+    try {
+
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      scheduler.trigger(0);
+
+      // periodic runs at 300 and 800ms with the triggered one in between, a second periodic
+      // chain would add another run at about 900ms
+      Thread.sleep(Math.max(0, 1200 - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+    } finally {
+      scheduler.stop();
+    }
+
+    assertTrue(runs.get() <= 3, runs.get() + " runs");
+  }
+
+  @Test
+  public void testRetriesFailedTriggerWithoutPeriod() throws Exception {
+
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(3);
+
+    RefreshScheduler scheduler = new RefreshScheduler(() -> {
+      latch.countDown();
+      if (runs.incrementAndGet() < 3)
+        throw new IllegalStateException("source down");
+    }, 0, 0, 20);
+
+    scheduler.start();
+
+    try {
+      scheduler.trigger(0);
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Thread.sleep(100);
+    } finally {
+      scheduler.stop();
+    }
+
+    assertTrue(runs.get() == 3, runs.get() + " runs");
+  }
+
+}
@@ -0,0 +1,104 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.core.io.UrlResource;
+import org.springframework.context.support.GenericApplicationContext;
+import org.testng.annotations.Test;
+
+public class TestSharedConfigCache {
+
+  @Test
+  public void testSharersGetTheSameSnapshot() throws Exception {
+
+    AtomicInteger fetches = new AtomicInteger();
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+
+    SharedConfigCache.Entry first = SharedConfigCache.acquire("test|dev|host1");
+    SharedConfigCache.Entry second = SharedConfigCache.acquire("test|dev|host1");
+    SharedConfigCache.Entry other = SharedConfigCache.acquire("test|prod|host1");
+
+    assertSame(second, first);
+    assertNotSame(other, first);
+    assertEquals(first.getReferences(), 2);
+
+    ConfigSnapshot loaded = first.get(() -> fetch(fetches, props), 60000);
+    assertSame(second.get(() -> fetch(fetches, props), 60000), loaded);
+    assertEquals(fetches.get(), 1);
+    assertEquals(loaded.getVersion(), 1);
+
+    assertSame(second.get(() -> fetch(fetches, props), 0), loaded);
+    assertEquals(fetches.get(), 2);
+
+    props.put("property.1.name", "value2");
+    ConfigSnapshot changed = first.get(() -> fetch(fetches, props), 0);
+    assertEquals(changed.getVersion(), 2);
+    assertEquals(changed.getProperty("property.1.name"), "value2");
+
+    int size = SharedConfigCache.size();
+
+    SharedConfigCache.release(first);
+    assertEquals(SharedConfigCache.size(), size);
+    SharedConfigCache.release(second);
+    SharedConfigCache.release(other);
+    assertEquals(SharedConfigCache.size(), size - 2);
+  }
+
+  @Test
+  public void testReleasedWhenContextCloses() throws Exception {
+
+    int size = SharedConfigCache.size();
+
+    ConfigrdPropertyPlaceholderConfigurer configurer =
+        new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties", 0);
+    configurer.setSharedCache(true);
+
+    GenericApplicationContext context = new GenericApplicationContext();
+    context.registerBean("configurer", ConfigrdPropertyPlaceholderConfigurer.class,
+        () -> configurer);
+    context.refresh();
+
+    assertEquals(SharedConfigCache.size(), size + 1);
+
+    context.close();
+    assertEquals(SharedConfigCache.size(), size);
+  }
+
+  @Test
+  public void testExplicitReloadFetchesWithinTtl() throws Exception {
+
+    try (StubConfigServer server = new StubConfigServer()) {
+
+      ConfigrdPropertyPlaceholderConfigurer configurer =
+          new ConfigrdPropertyPlaceholderConfigurer("classpath:/env/hosts.properties", 0);
+      configurer.setLocation(new UrlResource(server.url("/env/dev/default.properties")));
+      configurer.setLocalOverride(false);
+      configurer.setSharedCache(true);
+
+      try {
+
+        assertEquals(configurer.reload().getStatus(), ReloadResult.Status.APPLIED);
+
+        server.put("/env/dev/default.properties", "property.2.name=changed\n");
+
+        assertEquals(configurer.reload().getStatus(), ReloadResult.Status.APPLIED);
+        assertEquals(configurer.getProperty("property.2.name", String.class), "changed");
+
+      } finally {
+        configurer.destroy();
+      }
+    }
+  }
+
+  private Properties fetch(AtomicInteger fetches, Properties props) {
+    fetches.incrementAndGet();
+    Properties copy = new Properties();
+    copy.putAll(props);
+    return copy;
+  }
+
+}
@@ -0,0 +1,94 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestSnapshotFile {
+
+  private Path dir;
+
+  @BeforeMethod
+  public void setup() throws Exception {
+    dir = Files.createTempDirectory("configrd");
+  }
+
+  @AfterMethod
+  public void teardown() throws Exception {
+    FileSystemUtils.deleteRecursively(dir.toFile());
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+    props.put("property.6.name", "ENC(NvuRfrVnqL8yDunzmutaCa6imIzh6QFL)");
+    props.put("unicode", "za\u017c\u00f3\u0142\u0107");
+    props.put("empty", "");
+
+    SnapshotFile file = new SnapshotFile(dir.resolve("cache/config.snapshot"));
+    assertFalse(file.exists());
+
+    file.write(ConfigSnapshot.of(7, props));
+    assertTrue(file.exists());
+
+    ConfigSnapshot read = file.read();
+    assertEquals(read.getVersion(), 7);
+    assertEquals(read.toProperties(), props);
+    assertEquals(read.getFingerprint(), ConfigSnapshot.fingerprint(props));
+
+    props.put("property.1.name", "changed");
+    file.write(ConfigSnapshot.of(8, props));
+    assertEquals(file.read().getProperty("property.1.name"), "changed");
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testCorruptFileIsRejected() throws Exception {
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+
+    SnapshotFile file = new SnapshotFile(dir.resolve("config.snapshot"));
+    file.write(ConfigSnapshot.of(1, props));
+
+    byte[] bytes = Files.readAllBytes(file.getPath());
+    bytes[bytes.length - 12] ^= 0xFF;
+    Files.write(file.getPath(), bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+    file.read();
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testInvalidLengthIsRejected() throws Exception {
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+
+    SnapshotFile file = new SnapshotFile(dir.resolve("config.snapshot"));
+    file.write(ConfigSnapshot.of(1, props));
+
+    // a negative key length under a valid checksum
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.getPath()));
+    bytes.putInt(18, -1);
+
+    CRC32 crc = new CRC32();
+    crc.update(bytes.array(), 0, bytes.capacity() - 8);
+    bytes.putLong(bytes.capacity() - 8, crc.getValue());
+    Files.write(file.getPath(), bytes.array(), StandardOpenOption.TRUNCATE_EXISTING);
+
+    file.read();
+  }
+
+}
@@ -0,0 +1,496 @@
+package com.appcrossings.config.spring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestValueInjector {
+
+  public static class BaseSample {
+
+    @Value("${property.1.name}")
+    private String inherited;
+
+    public String getInherited() {
+      return inherited;
+    }
+  }
+
+  public static class ChildSample extends BaseSample {
+
+    @Value("${property.2.name}")
+    private int number;
+
+    private String hidden;
+
+    public int getNumber() {
+      return number;
+    }
+
+    public String getHidden() {
+      return hidden;
+    }
+
+    @Value("${property.3.name}")
+    private void setHidden(String hidden) {
+      this.hidden = hidden;
+    }
+  }
+
+  public static class TypedSample {
+
+    @Value("${pool.size}")
+    public int poolSize;
+
+    @Value("${pool.timeout:1000}")
+    public long timeout;
+
+    @Value("${pool.hosts}")
+    public List<String> hosts;
+
+    public boolean enabled;
+
+    @Value("${pool.enabled:false}")
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+  }
+
+  public static class SpelSample {
+
+    @Value("#{'${pool.hosts}'.split(',')}")
+    public List<String> hosts;
+
+    @Value("#{${pool.timeout.secs} * 1000}")
+    public long timeout;
+  }
+
+  public static class OrderedSample {
+
+    @Value("${env.only}-${config.key}")
+    public String joined;
+
+    @Value("${config.key}")
+    public String overridden;
+  }
+
+  public static class LimitedSample {
+
+    @Value("${pool.size}")
+    public int poolSize;
+
+    public int limit;
+
+    @Value("${pool.limit:10}")
+    public void setLimit(int limit) {
+      if (limit > 100)
+        throw new IllegalArgumentException("limit " + limit + " is over 100");
+      this.limit = limit;
+    }
+  }
+
+  private GenericApplicationContext context;
+
+  private ValueInjector injector;
+
+  @BeforeMethod
+  public void setup() {
+
+    context = new GenericApplicationContext();
+    injector = new ValueInjector(context.getBeanFactory(), "${", "}");
+    context.getBeanFactory().addBeanPostProcessor(injector);
+    context.getBeanFactory().setConversionService(new DefaultConversionService());
+  }
+
+  private void refreshSamples() {
+
+    context.registerBeanDefinition("sample", new RootBeanDefinition(SampleClass.class));
+    context.registerBeanDefinition("typed", new RootBeanDefinition(TypedSample.class));
+
+    RootBeanDefinition lazy = new RootBeanDefinition(SampleClass.class);
+    lazy.setLazyInit(true);
+    context.registerBeanDefinition("lazy", lazy);
+
+    RootBeanDefinition prototype = new RootBeanDefinition(SampleClass.class);
+    prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+    context.registerBeanDefinition("prototype", prototype);
+
+    context.refresh();
+  }
+
+  private Properties props() {
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+    props.put("property.2.name", "value2");
+    props.put("property.4.name", "${property.1.name}-${property.2.name}");
+    props.put("pool.size", "64");
+    props.put("pool.hosts", "a,b,c");
+    return props;
+  }
+
+  @AfterMethod
+  public void teardown() {
+    injector.shutdown();
+    context.close();
+  }
+
+  @Test
+  public void testRecordsOnlyCreatedSingletons() throws Exception {
+
+    refreshSamples();
+
+    assertEquals(injector.size(), 8);
+
+    context.getBean("prototype");
+    assertEquals(injector.size(), 8);
+
+    context.getBean("lazy");
+    assertEquals(injector.size(), 12);
+  }
+
+  @Test
+  public void testReloadBeans() throws Exception {
+
+    refreshSamples();
+
+    assertTrue(injector.reloadBeans(ConfigSnapshot.of(1, props())));
+
+    SampleClass sample = context.getBean("sample", SampleClass.class);
+    assertEquals(sample.getSomeValue1(), "value1");
+    assertEquals(sample.getSomeValue2(), "value2");
+    assertEquals(sample.getSomeValue4(), "value1-value2");
+    assertEquals(sample.getBonus1(), "none");
+  }
+
+  @Test
+  public void testReloadOnlyChangedKeys() throws Exception {
+
+    refreshSamples();
+
+    Properties props = props();
+    injector.reloadBeans(ConfigSnapshot.of(1, props));
+
+    SampleClass sample = context.getBean("sample", SampleClass.class);
+    sample.setSomeValue2("untouched");
+
+    Properties updated = new Properties();
+    updated.putAll(props);
+    updated.put("property.1.name", "changed");
+
+    Set<String> changed = ConfigSnapshot.of(2, updated).changedKeys(ConfigSnapshot.of(1, props));
+    assertEquals(changed, Collections.singleton("property.1.name"));
+
+    injector.reloadBeans(ConfigSnapshot.of(2, updated), changed);
+
+    assertEquals(sample.getSomeValue1(), "changed");
+    assertEquals(sample.getSomeValue4(), "changed-value2");
+    assertEquals(sample.getSomeValue2(), "untouched");
+  }
+
+  @Test
+  public void testIndexesNestedAndDefaultKeys() throws Exception {
+
+    refreshSamples();
+
+    Properties props = props();
+    props.put("property.4.name", "${property.${which}.name}");
+    props.put("which", "1");
+    injector.reloadBeans(ConfigSnapshot.of(1, props));
+
+    assertTrue(injector.getDependents("which").size() > 0);
+    assertTrue(injector.getDependents("bonus.1.property").size() > 0);
+
+    Properties updated = new Properties();
+    updated.putAll(props);
+    updated.put("which", "2");
+    updated.put("bonus.1.property", "bonus");
+
+    ConfigSnapshot next = ConfigSnapshot.of(2, updated);
+    injector.reloadBeans(next, next.changedKeys(ConfigSnapshot.of(1, props)));
+
+    SampleClass sample = context.getBean("sample", SampleClass.class);
+    assertEquals(sample.getSomeValue4(), "value2");
+    assertEquals(sample.getBonus1(), "bonus");
+    assertTrue(injector.getDependents("property.2.name").size() > 1);
+  }
+
+  @Test
+  public void testReloadsBeanDefinitionPlaceholders() throws Exception {
+
+    RootBeanDefinition definition = new RootBeanDefinition(SampleClass.class);
+    definition.getPropertyValues().add("someOtherValue", "${property.3.name}");
+    definition.getPropertyValues().add("someValue2", "literal");
+    context.registerBeanDefinition("xml", definition);
+
+    injector.recordBeanDefinitions();
+    context.refresh();
+
+    Properties props = props();
+    props.put("property.3.name", "value3");
+    injector.reloadBeans(ConfigSnapshot.of(1, props));
+
+    SampleClass sample = context.getBean(SampleClass.class);
+    assertEquals(sample.getSomeOtherValue(), "value3");
+    assertEquals(injector.getDependents("property.3.name").size(), 1);
+
+    Properties updated = new Properties();
+    updated.putAll(props);
+    updated.put("property.3.name", "changed");
+
+    ConfigSnapshot next = ConfigSnapshot.of(2, updated);
+    assertTrue(injector.reloadBeans(next, next.changedKeys(ConfigSnapshot.of(1, props))));
+    assertEquals(sample.getSomeOtherValue(), "changed");
+  }
+
+  @Test
+  public void testConvertsToTargetType() throws Exception {
+
+    refreshSamples();
+
+    Properties props = props();
+    props.put("pool.enabled", "true");
+    injector.reloadBeans(ConfigSnapshot.of(1, props));
+
+    TypedSample typed = context.getBean("typed", TypedSample.class);
+    assertEquals(typed.poolSize, 64);
+    assertEquals(typed.timeout, 1000L);
+    assertEquals(typed.hosts, Arrays.asList("a", "b", "c"));
+    assertTrue(typed.enabled);
+  }
+
+  @Test
+  public void testEvaluatesExpressions() throws Exception {
+
+    context.registerBean("spel", SpelSample.class);
+    context.refresh();
+
+    Properties props = props();
+    props.put("pool.timeout.secs", "30");
+    assertTrue(injector.reloadBeans(ConfigSnapshot.of(1, props)));
+
+    SpelSample sample = context.getBean(SpelSample.class);
+    assertEquals(sample.hosts, Arrays.asList("a", "b", "c"));
+    assertEquals(sample.timeout, 30000L);
+
+    Properties updated = new Properties();
+    updated.putAll(props);
+    updated.put("pool.hosts", "c,d");
+    updated.put("pool.timeout.secs", "45");
+
+    ConfigSnapshot next = ConfigSnapshot.of(2, updated);
+    assertTrue(injector.reloadBeans(next, next.changedKeys(ConfigSnapshot.of(1, props))));
+    assertEquals(sample.hosts, Arrays.asList("c", "d"));
+    assertEquals(sample.timeout, 45000L);
+  }
+
+  @Test
+  public void testResolvesInEnvironmentOrder() throws Exception {
+
+    Map<String, Object> env = new HashMap<>();
+    env.put("env.only", "e");
+    env.put("config.key", "fromEnv");
+
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.getPropertySources().addFirst(new MapPropertySource("test", env));
+    environment.getPropertySources().addLast(new MapPropertySource(ConfigrdPropertySource.NAME,
+        Collections.singletonMap("config.key", "stale")));
+
+    context.registerBean("ordered", OrderedSample.class);
+    context.refresh();
+
+    // env.only didn't resolve when recorded, config.key is indexed anyway
+    assertEquals(injector.getDependents("config.key").size(), 2);
+
+    Properties props = new Properties();
+    props.put("config.key", "fromConfig");
+
+    injector.setEnvironment(environment, false);
+    assertTrue(injector.reloadBeans(ConfigSnapshot.of(1, props)));
+
+    OrderedSample sample = context.getBean(OrderedSample.class);
+    assertEquals(sample.joined, "e-fromEnv");
+    assertEquals(sample.overridden, "fromEnv");
+
+    injector.setEnvironment(environment, true);
+    assertTrue(injector.reloadBeans(ConfigSnapshot.of(2, props)));
+    assertEquals(sample.joined, "e-fromConfig");
+    assertEquals(sample.overridden, "fromConfig");
+  }
+
+  @Test
+  public void testReportsConversionFailures() throws Exception {
+
+    refreshSamples();
+
+    Properties props = props();
+    injector.reloadBeans(ConfigSnapshot.of(1, props));
+
+    Properties updated = new Properties();
+    updated.putAll(props);
+    updated.put("pool.size", "sixty-four");
+
+    long failures = injector.getFailureCount();
+    ConfigSnapshot next = ConfigSnapshot.of(2, updated);
+    assertFalse(injector.reloadBeans(next, next.changedKeys(ConfigSnapshot.of(1, props))));
+
+    assertEquals(context.getBean("typed", TypedSample.class).poolSize, 64);
+    assertEquals(injector.getFailureCount(), failures + 1);
+  }
+
+  @Test
+  public void testPrivateInheritedAndProxiedMembers() throws Exception {
+
+    context.registerBean("child", ChildSample.class);
+    context.registerBean("proxied", ChildSample.class, () -> {
+      ProxyFactory factory = new ProxyFactory(new ChildSample());
+      factory.setProxyTargetClass(true);
+      return (ChildSample) factory.getProxy();
+    });
+    context.refresh();
+
+    assertEquals(injector.size(), 6);
+
+    Properties props = new Properties();
+    props.put("property.1.name", "value1");
+    props.put("property.2.name", "2");
+    props.put("property.3.name", "value3");
+    injector.reloadBeans(ConfigSnapshot.of(1, props));
+
+    for (String name : new String[] {"child", "proxied"}) {
+      ChildSample sample = context.getBean(name, ChildSample.class);
+      assertEquals(sample.getInherited(), "value1");
+      assertEquals(sample.getNumber(), 2);
+      assertEquals(sample.getHidden(), "value3");
+    }
+  }
+
+  @Test
+  public void testFailedBatchIsNotApplied() throws Exception {
+
+    refreshSamples();
+
+    Properties props = props();
+    injector.reloadBeans(ConfigSnapshot.of(1, props));
+
+    Properties updated = new Properties();
+    updated.putAll(props);
+    updated.put("pool.hosts", "d,e");
+    updated.put("pool.timeout", "5000");
+    updated.put("pool.size", "not-a-number");
+
+    ConfigSnapshot next = ConfigSnapshot.of(2, updated);
+    ValueInjector.Batch batch = injector.prepare(next, next.changedKeys(ConfigSnapshot.of(1, props)));
+
+    assertFalse(batch.isValid());
+    assertEquals(batch.getFailures().size(), 1);
+    assertFalse(injector.apply(batch));
+
+    TypedSample typed = context.getBean("typed", TypedSample.class);
+    assertEquals(typed.hosts, Arrays.asList("a", "b", "c"));
+    assertEquals(typed.timeout, 1000L);
+
+    updated.put("pool.size", "128");
+    next = ConfigSnapshot.of(2, updated);
+    assertTrue(injector.reloadBeans(next, next.changedKeys(ConfigSnapshot.of(1, props))));
+
+    assertEquals(typed.hosts, Arrays.asList("d", "e"));
+    assertEquals(typed.timeout, 5000L);
+    assertEquals(typed.poolSize, 128);
+  }
+
+  @Test
+  public void testFailedWriteIsRolledBack() throws Exception {
+
+    context.registerBean("limited", LimitedSample.class);
+    context.refresh();
+
+    Properties props = props();
+    assertTrue(injector.reloadBeans(ConfigSnapshot.of(1, props)));
+
+    Properties updated = new Properties();
+    updated.putAll(props);
+    updated.put("pool.size", "128");
+    updated.put("pool.limit", "200");
+
+    long failures = injector.getFailureCount();
+    ConfigSnapshot next = ConfigSnapshot.of(2, updated);
+    ValueInjector.Batch batch = injector.prepare(next, next.changedKeys(ConfigSnapshot.of(1, props)));
+
+    assertTrue(batch.isValid());
+    assertFalse(injector.apply(batch));
+    assertEquals(batch.getFailures().size(), 1);
+    assertEquals(injector.getFailureCount(), failures + 1);
+
+    LimitedSample limited = context.getBean(LimitedSample.class);
+    assertEquals(limited.poolSize, 64);
+    assertEquals(limited.limit, 10);
+
+    updated.put("pool.limit", "50");
+    next = ConfigSnapshot.of(2, updated);
+    assertTrue(injector.reloadBeans(next, next.changedKeys(ConfigSnapshot.of(1, props))));
+    assertEquals(limited.poolSize, 128);
+    assertEquals(limited.limit, 50);
+  }
+
+  @Test
+  public void testParallelReload() throws Exception {
+
+    injector.setParallelism(4);
+    injector.setParallelThreshold(1);
+
+    for (int i = 0; i < 50; i++) {
+      context.registerBeanDefinition("typed" + i, new RootBeanDefinition(TypedSample.class));
+    }
+
+    context.refresh();
+
+    Properties props = props();
+    assertTrue(injector.reloadBeans(ConfigSnapshot.of(1, props)));
+
+    Properties updated = new Properties();
+    updated.putAll(props);
+    updated.put("pool.size", "128");
+    updated.put("pool.enabled", "true");
+
+    ConfigSnapshot next = ConfigSnapshot.of(2, updated);
+    assertTrue(injector.reloadBeans(next, next.changedKeys(ConfigSnapshot.of(1, props))));
+
+    for (TypedSample typed : context.getBeansOfType(TypedSample.class).values()) {
+      assertEquals(typed.poolSize, 128);
+      assertTrue(typed.enabled);
+    }
+
+    updated.put("pool.size", "oops");
+    updated.put("pool.timeout", "5000");
+    ConfigSnapshot broken = ConfigSnapshot.of(3, updated);
+    ValueInjector.Batch batch = injector.prepare(broken, broken.changedKeys(next));
+
+    assertEquals(batch.getFailures().size(), 50);
+    assertFalse(injector.apply(batch));
+
+    for (TypedSample typed : context.getBeansOfType(TypedSample.class).values()) {
+      assertEquals(typed.poolSize, 128);
+      assertEquals(typed.timeout, 1000L);
+    }
+  }
+
+}